@@ -0,0 +1,39 @@
+package registry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Full load of the columnar store from MySQL, as at startup and on reconnect: alone, and with
+// the search index, aggregates and depreciation schedule rebuilt after it like the window does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class AssetLoadBenchmark {
+
+    @Benchmark
+    public int loadStore(RegistryState registry) throws SQLException {
+        ColumnarAssetStore store = new ColumnarAssetStore();
+        store.load(registry.connection);
+        return store.size();
+    }
+
+    @Benchmark
+    public int loadStoreWithDerivedStructures(RegistryState registry) throws SQLException {
+        ColumnarAssetStore store = new ColumnarAssetStore();
+        new AssetSearchIndex(store);
+        new AssetAggregates(store);
+        new DepreciationSchedule(store, registry.engine, DepreciationEngine.Method.STRAIGHT_LINE, 5);
+        store.load(registry.connection);
+        return store.size();
+    }
+}
@@ -0,0 +1,207 @@
+package registry;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+// The database the benchmarks run against: one schema per registry size, named bench_<assets>,
+// created by SchemaMigrator as the application would create it, and seeded once with a synthetic registry. Seeding is
+// deterministic, so every run and every release measures the same rows.
+//
+// By default an embedded MariaDB is started, keeping its data in the temp directory (or
+// -Dbench.dataDir) so the seeded schemas survive between forks and runs; it is stopped when the
+// last connection is released. Set -Dbench.jdbcUrl (plus bench.user and bench.password) to use
+// a MySQL server instead, e.g. jdbc:mysql://localhost:3306/ — the schemas are created there.
+final class BenchDatabase {
+    // Same driver options as FixedAssetsRegistry.DB_URL
+    static final String URL_OPTIONS = "?useServerPrepStmts=true&rewriteBatchedStatements=true";
+    static final long SEED = 20_240_101L;
+    private static final int INSERT_BATCH_SIZE = 1_000;
+    private static final int COMMIT_CHUNK_SIZE = 20_000;
+
+    static final String[] CATEGORIES = {"Computer Equipment", "Office Furniture", "Vehicles",
+            "Machinery", "Software", "Building & Infrastructure"};
+    static final String[] LOCATIONS = {"Main Office", "Warehouse", "Branch Office A",
+            "Branch Office B", "Remote Location"};
+    static final String[] STATUSES = {"Active", "Inactive", "Under Maintenance", "Disposed", "Lost/Stolen"};
+    private static final int[] STATUS_WEIGHTS = {70, 8, 7, 13, 2};
+    private static final double[] CATEGORY_RATES = {25.0, 10.0, 20.0, 12.5, 33.33, 2.5};
+    private static final String[][] ITEMS = {
+            {"Laptop", "Desktop", "Monitor", "Printer", "Server", "Router"},
+            {"Desk", "Chair", "Cabinet", "Bookshelf", "Conference Table"},
+            {"Van", "Truck", "Sedan", "Forklift"},
+            {"Lathe", "Press", "Generator", "Compressor", "Conveyor"},
+            {"ERP License", "CAD Suite", "Office Suite", "Database License"},
+            {"HVAC Unit", "Roof Upgrade", "Fire System", "Parking Lot"}};
+    private static final String[] SUPPLIERS = {"Acme Supplies", "Globex", "Initech", "Umbrella Corp",
+            "Stark Industries", "Wayne Enterprises", "Tyrell Corp"};
+
+    private static DB embedded;
+    private static String serverUrl; // Ends in "/"
+    private static String user;
+    private static String password;
+    private static int openConnections;
+
+    private BenchDatabase() {
+    }
+
+    // A connection to the schema holding the given number of assets, seeding it first if needed
+    static synchronized Connection connect(int assets) throws SQLException {
+        startServer();
+        String schema = "bench_" + assets;
+        try (Connection server = DriverManager.getConnection(serverUrl + URL_OPTIONS, user, password);
+             Statement stmt = server.createStatement()) {
+            stmt.execute("CREATE DATABASE IF NOT EXISTS " + schema);
+        }
+        Connection connection = DriverManager.getConnection(serverUrl + schema + URL_OPTIONS, user, password);
+        openConnections++;
+        if (seededAssets(connection) != assets) {
+            seed(connection, assets);
+        } else {
+            SchemaMigrator.migrate(connection); // Seeded by an older release
+        }
+        return connection;
+    }
+
+    // Closes a connection from connect(); the embedded server's threads would otherwise keep
+    // the benchmark fork from exiting
+    static synchronized void release(Connection connection) throws SQLException {
+        connection.close();
+        if (--openConnections == 0 && embedded != null) {
+            stopServer();
+            embedded = null;
+            serverUrl = null;
+        }
+    }
+
+    private static void startServer() throws SQLException {
+        if (serverUrl != null) {
+            return;
+        }
+        String url = System.getProperty("bench.jdbcUrl");
+        if (url != null) {
+            serverUrl = url.endsWith("/") ? url : url + "/";
+            user = System.getProperty("bench.user", "root");
+            password = System.getProperty("bench.password", "");
+            return;
+        }
+
+        Path dataDir = Paths.get(System.getProperty("bench.dataDir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "fixed-assets-registry-bench-db").toString()));
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0); // Any free port
+        config.setDataDir(dataDir.toString());
+        config.setDeletingTemporaryBaseAndDataDirsOnShutdown(false);
+        if ("root".equals(System.getProperty("user.name"))) {
+            config.addArg("--user=root"); // mariadbd refuses to run as root otherwise, e.g. in containers
+        }
+        try {
+            embedded = DB.newEmbeddedDB(config.build());
+            embedded.start();
+        } catch (ManagedProcessException e) {
+            throw new SQLException("Could not start the embedded database: " + e.getMessage(), e);
+        }
+        serverUrl = "jdbc:mysql://localhost:" + config.getPort() + "/";
+        user = "root";
+        password = "";
+    }
+
+    private static void stopServer() {
+        try {
+            embedded.stop();
+        } catch (ManagedProcessException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Number of assets the last completed seeding wrote, or -1
+    private static int seededAssets(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT assets FROM bench_seed")) {
+            return rs.next() ? rs.getInt(1) : -1;
+        } catch (SQLException e) {
+            return -1; // Not seeded yet
+        }
+    }
+
+    private static void seed(Connection connection, int assets) throws SQLException {
+        System.err.println("Seeding " + assets + " assets...");
+        long start = System.nanoTime();
+        try (Statement stmt = connection.createStatement()) {
+            for (String table : new String[]{"bench_seed", "fixed_assets", "asset_tombstones",
+                    "asset_categories", "asset_locations", "asset_status", "schema_version"}) {
+                stmt.execute("DROP TABLE IF EXISTS " + table);
+            }
+        }
+        SchemaMigrator.migrate(connection);
+
+        Random random = new Random(SEED);
+        LocalDate today = LocalDate.of(2025, 1, 1); // Fixed, so the registry never changes
+        connection.setAutoCommit(false);
+        try (PreparedStatement stmt = connection.prepareStatement(SqlStatements.INSERT_ASSET)) {
+            for (int i = 1; i <= assets; i++) {
+                int category = random.nextInt(CATEGORIES.length);
+                String[] items = ITEMS[category];
+                String item = items[random.nextInt(items.length)];
+                LocalDate purchased = today.minusDays(random.nextInt(12 * 365));
+
+                stmt.setString(1, item + " " + i);
+                stmt.setString(2, CATEGORIES[category]);
+                stmt.setString(3, random.nextInt(4) == 0 ? null
+                        : item + " for the " + LOCATIONS[random.nextInt(LOCATIONS.length)].toLowerCase() + " team");
+                stmt.setBigDecimal(4, java.math.BigDecimal.valueOf(100_00 + random.nextInt(20_000_000), 2));
+                stmt.setDate(5, Date.valueOf(purchased));
+                stmt.setString(6, LOCATIONS[random.nextInt(LOCATIONS.length)]);
+                stmt.setString(7, STATUSES[weighted(random, STATUS_WEIGHTS)]);
+                stmt.setString(8, String.format("SN-%08X", random.nextInt()));
+                stmt.setString(9, random.nextInt(5) == 0 ? null : SUPPLIERS[random.nextInt(SUPPLIERS.length)]);
+                stmt.setDate(10, random.nextInt(3) == 0 ? null : Date.valueOf(purchased.plusYears(1 + random.nextInt(5))));
+                stmt.setDouble(11, random.nextInt(10) == 0 ? 0.0 : CATEGORY_RATES[category]);
+                stmt.addBatch();
+
+                if (i % INSERT_BATCH_SIZE == 0 || i == assets) {
+                    stmt.executeBatch();
+                }
+                if (i % COMMIT_CHUNK_SIZE == 0) {
+                    connection.commit();
+                }
+            }
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE bench_seed (assets INT NOT NULL)");
+            stmt.execute("INSERT INTO bench_seed VALUES (" + assets + ")");
+        }
+        System.err.printf("Seeded %d assets in %d s%n", assets, (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    private static int weighted(Random random, int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+}
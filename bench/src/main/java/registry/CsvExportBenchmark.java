@@ -0,0 +1,56 @@
+package registry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// Export of the whole registry, streamed from a forward-only cursor into a file
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class CsvExportBenchmark {
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private Path directory;
+    private Path file;
+    private final AssetCsvExporter exporter = new AssetCsvExporter();
+
+    @Setup
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("bench-export");
+        file = directory.resolve(gzip ? "assets.csv.gz" : "assets.csv");
+    }
+
+    @TearDown
+    public void deleteDirectory() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int exportAll(RegistryState registry) throws SQLException, IOException {
+        QueryExecutor.QueryContext ctx = new QueryExecutor.QueryContext("Exporting assets", null);
+        ctx.attach(registry.connection);
+        return exporter.export(ctx, SqlStatements.assetExport(""), Collections.emptyList(), file);
+    }
+}
@@ -0,0 +1,62 @@
+package registry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+// Depreciation as the reports compute it: book values on one date, and a 60 month-end schedule
+// like the one DepreciationSchedule keeps, over the depreciating, non-disposed assets
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class DepreciationBenchmark {
+    // A DepreciationEngine.Method name; the enum is package-private, which JMH's generated code cannot see
+    @Param({"STRAIGHT_LINE", "DECLINING_BALANCE", "SUM_OF_YEARS_DIGITS"})
+    public String methodName;
+
+    private DepreciationEngine.Method method;
+    private DepreciationEngine.Basis basis;
+    private final LocalDate asOf = LocalDate.of(2025, 1, 1);
+    private final int[] monthEnds = new int[60];
+
+    @Setup
+    public void readBasis(RegistryState registry) {
+        method = DepreciationEngine.Method.valueOf(methodName);
+        basis = registry.store.depreciationBasis("Disposed", true);
+        YearMonth last = YearMonth.from(asOf);
+        for (int i = 0; i < monthEnds.length; i++) {
+            monthEnds[i] = (int) last.minusMonths(monthEnds.length - 1 - i).atEndOfMonth().toEpochDay();
+        }
+    }
+
+    @Benchmark
+    public long[] bookValues(RegistryState registry) {
+        return registry.engine.bookValues(basis, method, asOf);
+    }
+
+    @Benchmark
+    public long[][] monthEndSchedule(RegistryState registry) {
+        return registry.engine.schedule(basis, method, monthEnds);
+    }
+
+    // Copying the basis out of the store, done before every report
+    @Benchmark
+    public DepreciationEngine.Basis basisFromStore(RegistryState registry) {
+        return registry.store.depreciationBasis("Disposed", true);
+    }
+}
@@ -0,0 +1,50 @@
+package registry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The filters behind the search box and the category and status combos, answered from the
+// loaded store: by scanning it, and through the trigram index as filterTable() does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+    // A common word, a rare name and a serial number fragment
+    @Param({"laptop", "Forklift 77", "SN-00A"})
+    public String term;
+
+    @Benchmark
+    public int categoryAndStatus(RegistryState registry) {
+        return registry.store.filterIds(null, "Vehicles", "Active").length;
+    }
+
+    @Benchmark
+    public int searchByScan(RegistryState registry) {
+        return registry.store.filterIds(term, null, null).length;
+    }
+
+    @Benchmark
+    public int searchByIndex(RegistryState registry) {
+        return registry.store.filterIds(registry.searchIndex.search(term), null, null, null).length;
+    }
+
+    // What the status bar shows for the search result
+    @Benchmark
+    public long searchWithTotals(RegistryState registry) {
+        int[] ids = registry.store.filterIds(registry.searchIndex.search(term), null, "Computer Equipment", null);
+        return registry.store.totals(ids).costCents;
+    }
+}
@@ -0,0 +1,43 @@
+package registry;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// A seeded registry with the columnar store loaded and the structures the application derives
+// from it, as they are once the window has finished loading. Add -p assets=1000000 for the
+// largest registry.
+@State(Scope.Benchmark)
+public class RegistryState {
+    @Param({"10000", "100000"})
+    public int assets;
+
+    Connection connection;
+    ColumnarAssetStore store;
+    AssetSearchIndex searchIndex;
+    AssetAggregates aggregates;
+    DepreciationEngine engine;
+    DepreciationSchedule schedule;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        connection = BenchDatabase.connect(assets);
+        store = new ColumnarAssetStore();
+        searchIndex = new AssetSearchIndex(store);
+        aggregates = new AssetAggregates(store);
+        engine = new DepreciationEngine();
+        schedule = new DepreciationSchedule(store, engine, DepreciationEngine.Method.STRAIGHT_LINE, 5);
+        store.load(connection);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        BenchDatabase.release(connection);
+    }
+}
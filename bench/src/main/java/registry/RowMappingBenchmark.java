@@ -0,0 +1,63 @@
+package registry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Turning result rows into table rows: one page of the table fetched from MySQL as the viewport
+// reaches it, and the same rows taken from the loaded store
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+    private int firstId;
+    private int lastId;
+    private int[] pageIds;
+
+    // A page from the middle of the registry
+    @Setup
+    public void choosePage(RegistryState registry) {
+        int[] ids = registry.store.filterIds(null, null, null);
+        int from = ids.length / 2;
+        pageIds = java.util.Arrays.copyOfRange(ids, from, Math.min(from + PagedAssetTableModel.PAGE_SIZE, ids.length));
+        firstId = pageIds[0];
+        lastId = pageIds[pageIds.length - 1];
+    }
+
+    @Benchmark
+    public void fetchPage(RegistryState registry, Blackhole blackhole) throws SQLException {
+        try (PreparedStatement stmt = registry.connection.prepareStatement(SqlStatements.assetRange(""))) {
+            stmt.setInt(1, firstId);
+            stmt.setInt(2, lastId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                AssetRowMapper mapper = new AssetRowMapper(rs);
+                while (rs.next()) {
+                    blackhole.consume(mapper.map().toTableRow());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void pageFromStore(RegistryState registry, Blackhole blackhole) {
+        for (int id : pageIds) {
+            blackhole.consume(registry.store.getAsset(id).toTableRow());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package registry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// The Asset Summary and the status bar totals: read from the running aggregates, rebuilt from
+// the store after a load, and the GROUP BY queries used before the store is loaded
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class SummaryBenchmark {
+
+    @Benchmark
+    public void summaryFromAggregates(RegistryState registry, Blackhole blackhole) {
+        blackhole.consume(registry.aggregates.byCategory("Disposed"));
+        blackhole.consume(registry.aggregates.byStatus());
+    }
+
+    @Benchmark
+    public long statusBarTotals(RegistryState registry) {
+        return registry.aggregates.totals("Vehicles", "Active").costCents;
+    }
+
+    @Benchmark
+    public void rebuildAggregates(RegistryState registry) {
+        registry.aggregates.reloaded(registry.store);
+    }
+
+    // One insert, then its removal, patched into the aggregates
+    @Benchmark
+    public void patchAggregates(RegistryState registry) {
+        FixedAssetsRegistry.Asset asset = new FixedAssetsRegistry.Asset(Integer.MAX_VALUE, "Bench", "Vehicles",
+                null, 1234.56, LocalDate.of(2024, 1, 1), "Main Office", "Active", null, null, null, 20.0);
+        registry.aggregates.changed(null, asset);
+        registry.aggregates.changed(asset, null);
+    }
+
+    @Benchmark
+    public void summaryFromSql(RegistryState registry, Blackhole blackhole) throws SQLException {
+        for (String sql : new String[]{SqlStatements.ASSET_SUMMARY, SqlStatements.ASSET_STATUS_SUMMARY}) {
+            try (PreparedStatement stmt = registry.connection.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    blackhole.consume(rs.getDouble("total_value"));
+                }
+            }
+        }
+    }
+}
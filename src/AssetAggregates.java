@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Running count, total, minimum and maximum cost of the assets, kept per category and status
+// pair so the status bar and the asset summary never scan the registry. Per-category,
+// per-status and overall figures are merged from the pairs, so reading them costs
+// O(categories x statuses) however many assets there are.
+// Like the search index it follows the columnar store: built after a full load and patched on
+// every single change. Each group keeps its costs in a sorted multiset, so minimum and maximum
+// stay right when the cheapest or dearest asset goes away.
+class AssetAggregates implements ColumnarAssetStore.ChangeListener {
+
+    // Figures of one category or status; key is null for assets without one
+    static class Aggregate {
+        final String key;
+        final int count;
+        final long totalCents;
+        final long minCents;
+        final long maxCents;
+
+        Aggregate(String key, int count, long totalCents, long minCents, long maxCents) {
+            this.key = key;
+            this.count = count;
+            this.totalCents = totalCents;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+        }
+
+        double getTotalValue() { return totalCents / 100.0; }
+        double getAverageValue() { return count == 0 ? 0.0 : totalCents / 100.0 / count; }
+        double getMinValue() { return minCents / 100.0; }
+        double getMaxValue() { return maxCents / 100.0; }
+    }
+
+    // The assets of one category and status
+    private static class Group {
+        final String category;
+        final String status;
+        int count;
+        long totalCents;
+        final TreeMap<Long, Integer> costs = new TreeMap<>(); // Cost in cents -> number of assets
+
+        Group(String category, String status) {
+            this.category = category;
+            this.status = status;
+        }
+
+        void add(long costCents) {
+            count++;
+            totalCents += costCents;
+            costs.merge(costCents, 1, Integer::sum);
+        }
+
+        void remove(long costCents) {
+            count--;
+            totalCents -= costCents;
+            costs.computeIfPresent(costCents, (cost, n) -> n == 1 ? null : n - 1);
+        }
+    }
+
+    // Merges groups into one Aggregate
+    private static class Accumulator {
+        final String key;
+        int count;
+        long totalCents;
+        long minCents = Long.MAX_VALUE;
+        long maxCents = Long.MIN_VALUE;
+
+        Accumulator(String key) {
+            this.key = key;
+        }
+
+        void add(Group group) {
+            count += group.count;
+            totalCents += group.totalCents;
+            minCents = Math.min(minCents, group.costs.firstKey());
+            maxCents = Math.max(maxCents, group.costs.lastKey());
+        }
+
+        Aggregate toAggregate() {
+            return count == 0 ? new Aggregate(key, 0, 0, 0, 0)
+                    : new Aggregate(key, count, totalCents, minCents, maxCents);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Category -> status -> group; empty groups are dropped
+    private Map<String, Map<String, Group>> groups = new HashMap<>();
+    private volatile boolean ready;
+
+    AssetAggregates(ColumnarAssetStore store) {
+        store.addChangeListener(this);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Count and cost of every asset
+    public ColumnarAssetStore.Totals totals() {
+        return totals(null, null);
+    }
+
+    // Count and cost of the assets in the given category and status; null matches any
+    public ColumnarAssetStore.Totals totals(String category, String status) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            long sum = 0;
+            for (Map<String, Group> byStatus : groups.values()) {
+                for (Group group : byStatus.values()) {
+                    if ((category == null || category.equals(group.category))
+                            && (status == null || status.equals(group.status))) {
+                        count += group.count;
+                        sum += group.totalCents;
+                    }
+                }
+            }
+            return new ColumnarAssetStore.Totals(count, sum);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Figures per category of every asset whose status is not the excluded one,
+    // largest total first (the equivalent of SqlStatements.ASSET_SUMMARY)
+    public List<Aggregate> byCategory(String excludedStatus) {
+        return merge(true, excludedStatus);
+    }
+
+    // Figures per status, largest total first
+    public List<Aggregate> byStatus() {
+        return merge(false, null);
+    }
+
+    private List<Aggregate> merge(boolean byCategory, String excludedStatus) {
+        lock.readLock().lock();
+        try {
+            Map<String, Accumulator> merged = new HashMap<>();
+            for (Map<String, Group> byStatus : groups.values()) {
+                for (Group group : byStatus.values()) {
+                    if (excludedStatus != null && excludedStatus.equals(group.status)) continue;
+                    String key = byCategory ? group.category : group.status;
+                    merged.computeIfAbsent(key, Accumulator::new).add(group);
+                }
+            }
+            List<Aggregate> result = new ArrayList<>(merged.size());
+            for (Accumulator accumulator : merged.values()) {
+                result.add(accumulator.toAggregate());
+            }
+            result.sort((a, b) -> Long.compare(b.totalCents, a.totalCents));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void reloaded(ColumnarAssetStore store) {
+        Map<String, Map<String, Group>> fresh = new HashMap<>();
+        store.forEachCost((category, status, costCents) -> group(fresh, category, status).add(costCents));
+
+        lock.writeLock().lock();
+        try {
+            groups = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void changed(FixedAssetsRegistry.Asset before, FixedAssetsRegistry.Asset after) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                return; // The rebuild that follows the load will include it
+            }
+            if (before != null) {
+                Group group = group(groups, before.getCategory(), before.getStatus());
+                group.remove(toCents(before.getCost()));
+                if (group.count == 0) {
+                    Map<String, Group> byStatus = groups.get(group.category);
+                    byStatus.remove(group.status);
+                    if (byStatus.isEmpty()) {
+                        groups.remove(group.category);
+                    }
+                }
+            }
+            if (after != null) {
+                group(groups, after.getCategory(), after.getStatus()).add(toCents(after.getCost()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Group group(Map<String, Map<String, Group>> groups, String category, String status) {
+        return groups.computeIfAbsent(category, c -> new HashMap<>())
+                .computeIfAbsent(status, s -> new Group(category, s));
+    }
+
+    // Same rounding as ColumnarAssetStore.upsert()
+    private static long toCents(double cost) {
+        return Math.round(cost * 100);
+    }
+}
@@ -0,0 +1,348 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Read-only JSON API over the columnar store, for tools that only need to look assets up:
+//
+//   GET /api/assets/{id}    one asset
+//   GET /api/assets         assets in id order, filtered by search, category, status, location
+//                           and serial (all optional), paged with offset and limit
+//   GET /api/summary        count and value per category (disposed left out), per status and overall
+//
+// Requests never reach MySQL: they are answered from the store (kept current by whoever owns
+// it) on a virtual thread each. Every response carries an ETag naming the store version it was
+// built from; a client sending it back in If-None-Match gets 304 Not Modified until an asset
+// changes. Built responses are also cached by URL for the current version, so many readers
+// asking the same thing share one rendering.
+class AssetApiServer {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1_000;
+    static final int MAX_CACHED_RESPONSES = 512;
+
+    private final ColumnarAssetStore store;
+    private final AssetSearchIndex searchIndex;
+    private final AssetAggregates aggregates;
+    // Tells this server's tags apart from an earlier run's, whose versions started over
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, byte[]> responses = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_CACHED_RESPONSES;
+        }
+    };
+    private long cachedVersion = -1; // Version the cached responses were built from
+    private HttpServer server;
+    private ExecutorService executor;
+
+    AssetApiServer(ColumnarAssetStore store, AssetSearchIndex searchIndex, AssetAggregates aggregates) {
+        this.store = store;
+        this.searchIndex = searchIndex;
+        this.aggregates = aggregates;
+    }
+
+    public void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405, "Only GET and HEAD are supported");
+                return;
+            }
+            if (!store.isLoaded()) {
+                exchange.getResponseHeaders().set("Retry-After", "10");
+                sendError(exchange, 503, "The registry is still loading");
+                return;
+            }
+
+            // Built from one version; a change while building means the body may mix two, so it
+            // is sent untagged and not cached
+            long version = store.getVersion();
+            String key = exchange.getRequestURI().toString();
+            String etag = "\"" + instance + "-" + version + "\"";
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = cached(version, key);
+            if (body == null) {
+                String json;
+                try {
+                    json = route(exchange.getRequestURI().getRawPath(), parseQuery(exchange.getRequestURI().getRawQuery()));
+                } catch (ApiException e) {
+                    sendError(exchange, e.status, e.getMessage());
+                    return;
+                }
+                body = json.getBytes(StandardCharsets.UTF_8);
+                if (store.getVersion() == version) {
+                    cache(version, key, body);
+                } else {
+                    etag = null;
+                }
+            }
+
+            if (etag != null) {
+                exchange.getResponseHeaders().set("ETag", etag);
+            }
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache"); // Revalidate with the ETag
+            send(exchange, 200, body);
+        }
+    }
+
+    private String route(String path, Map<String, String> query) throws ApiException {
+        if (path.equals("/api/assets")) {
+            return listAssets(query);
+        }
+        if (path.startsWith("/api/assets/")) {
+            int assetId;
+            try {
+                assetId = Integer.parseInt(path.substring("/api/assets/".length()));
+            } catch (NumberFormatException e) {
+                throw new ApiException(404, "No such asset");
+            }
+            FixedAssetsRegistry.Asset asset = store.getAsset(assetId);
+            if (asset == null) {
+                throw new ApiException(404, "No such asset");
+            }
+            StringBuilder json = new StringBuilder(512);
+            appendAsset(json, asset);
+            return json.toString();
+        }
+        if (path.equals("/api/summary")) {
+            return summary();
+        }
+        throw new ApiException(404, "Unknown resource " + path);
+    }
+
+    // Same matching as the table's filters, plus exact location and serial number
+    private String listAssets(Map<String, String> query) throws ApiException {
+        String search = query.get("search");
+        int offset = intParam(query, "offset", 0, 0, Integer.MAX_VALUE);
+        int limit = intParam(query, "limit", DEFAULT_LIMIT, 1, MAX_LIMIT);
+
+        int[] candidates = search != null && searchIndex.isReady() ? searchIndex.search(search) : null;
+        int[] ids = store.filterIds(candidates, candidates == null ? search : null, query.get("category"),
+                query.get("status"), query.get("location"), query.get("serial"));
+        int from = Math.min(offset, ids.length);
+        int to = (int) Math.min((long) from + limit, ids.length);
+        List<FixedAssetsRegistry.Asset> page = store.getAssets(ids, from, to);
+
+        StringBuilder json = new StringBuilder(256 + page.size() * 320);
+        json.append("{\"total\":").append(ids.length)
+                .append(",\"offset\":").append(offset)
+                .append(",\"limit\":").append(limit)
+                .append(",\"assets\":[");
+        for (int i = 0; i < page.size(); i++) {
+            if (i > 0) json.append(',');
+            appendAsset(json, page.get(i));
+        }
+        return json.append("]}").toString();
+    }
+
+    private String summary() throws ApiException {
+        if (!aggregates.isReady()) {
+            throw new ApiException(503, "The summary is still being built");
+        }
+        ColumnarAssetStore.Totals totals = aggregates.totals();
+        StringBuilder json = new StringBuilder(2048);
+        json.append("{\"count\":").append(totals.count)
+                .append(",\"totalValue\":").append(money(totals.getCost()))
+                .append(",\"byCategory\":");
+        appendAggregates(json, aggregates.byCategory("Disposed"));
+        json.append(",\"byStatus\":");
+        appendAggregates(json, aggregates.byStatus());
+        return json.append('}').toString();
+    }
+
+    private synchronized byte[] cached(long version, String key) {
+        return version == cachedVersion ? responses.get(key) : null;
+    }
+
+    private synchronized void cache(long version, String key, byte[] body) {
+        if (version != cachedVersion) {
+            responses.clear();
+            cachedVersion = version;
+        }
+        responses.put(key, body);
+    }
+
+    private static void appendAsset(StringBuilder json, FixedAssetsRegistry.Asset asset) {
+        json.append("{\"id\":").append(asset.getId());
+        appendField(json, "name", asset.getName());
+        appendField(json, "category", asset.getCategory());
+        appendField(json, "description", asset.getDescription());
+        json.append(",\"cost\":").append(money(asset.getCost()));
+        appendField(json, "purchaseDate", asset.getPurchaseDate());
+        appendField(json, "location", asset.getLocation());
+        appendField(json, "status", asset.getStatus());
+        appendField(json, "serialNumber", asset.getSerialNumber());
+        appendField(json, "supplier", asset.getSupplier());
+        appendField(json, "warrantyExpiry", asset.getWarrantyExpiry());
+        json.append(",\"depreciationRate\":").append(asset.getDepreciationRate()).append('}');
+    }
+
+    private static void appendAggregates(StringBuilder json, List<AssetAggregates.Aggregate> lines) {
+        json.append('[');
+        for (int i = 0; i < lines.size(); i++) {
+            AssetAggregates.Aggregate line = lines.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"name\":");
+            appendString(json, line.key);
+            json.append(",\"count\":").append(line.count)
+                    .append(",\"totalValue\":").append(money(line.getTotalValue()))
+                    .append(",\"averageValue\":").append(money(line.getAverageValue()))
+                    .append(",\"minValue\":").append(money(line.getMinValue()))
+                    .append(",\"maxValue\":").append(money(line.getMaxValue()))
+                    .append('}');
+        }
+        json.append(']');
+    }
+
+    private static void appendField(StringBuilder json, String name, Object value) {
+        json.append(",\"").append(name).append("\":");
+        appendString(json, value == null ? null : value.toString());
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    // Dollars as a JSON number with two decimals
+    private static String money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    // True when the If-None-Match header lists the tag, or is "*"
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Empty values count as absent
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8).trim();
+            if (!value.isEmpty()) {
+                query.put(name, value);
+            }
+        }
+        return query;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int fallback, int min, int max)
+            throws ApiException {
+        String value = query.get(name);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= min && number <= max) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new ApiException(400, name + " must be a number from " + min + " to " + max);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        send(exchange, status, json.append('}').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // A request that cannot be answered, with the HTTP status to answer it with
+    private static class ApiException extends Exception {
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Pulls the asset changes made since the last sync, by this client or any other: rows of
+// fixed_assets whose updated_at passed the watermark, and ids the delete trigger recorded in
+// asset_tombstones. updated_at is stamped when a row is written, not when its transaction
+// commits, so a row can become visible long after its timestamp (a large import chunk, any long
+// transaction). The next watermark is therefore taken just before each pull from the start of
+// the oldest transaction still open that has written in this schema, or the database clock when
+// none is, and set back by a safety window for statements that stamped their rows before their
+// transaction showed up. Rows committed since are all stamped after it. Seeing a row twice is
+// harmless because changes are applied as upserts. A transaction left open for long would make
+// every sync read everything it wrote since, so the watermark is held back at most
+// MAX_HOLD_BACK_MILLIS; rows such a transaction stamped earlier and commits later are missed
+// until the next full load, which is logged. Without the PROCESS privilege open transactions
+// cannot be seen, and the safety window alone is used.
+class AssetChangeFeed {
+    static final long SAFETY_WINDOW_MILLIS = 5_000;
+    static final long MAX_HOLD_BACK_MILLIS = 10 * 60_000;
+    // MySQL's "Access denied; you need the PROCESS privilege"
+    private static final int ER_SPECIFIC_ACCESS_DENIED = 1227;
+
+    // One row as the store held it before the sync (null if new) and after it (null if deleted)
+    static class Change {
+        final FixedAssetsRegistry.Asset before;
+        final FixedAssetsRegistry.Asset after;
+
+        Change(FixedAssetsRegistry.Asset before, FixedAssetsRegistry.Asset after) {
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    private volatile Timestamp watermark;
+    private volatile boolean transactionsVisible = true;
+    private volatile boolean holdBackCapped; // Logged once until the long transaction is gone
+
+    // Starts tracking from now. Call just before a full load, so writes made while it runs are
+    // pulled by the next sync rather than lost.
+    public void reset(QueryExecutor.QueryContext ctx) throws SQLException {
+        watermark = safeNow(ctx);
+    }
+
+    // Continues from a watermark saved earlier, e.g. with a local snapshot
+    public void resume(Timestamp savedWatermark) {
+        watermark = savedWatermark;
+    }
+
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    public boolean isStarted() {
+        return watermark != null;
+    }
+
+    // Fetches the changes since the watermark, applies them to the store and returns them so the
+    // caller can patch whatever it shows. The watermark only moves once everything is applied.
+    public List<Change> sync(QueryExecutor.QueryContext ctx, ColumnarAssetStore store) throws SQLException {
+        Timestamp since = watermark;
+        if (since == null) {
+            throw new IllegalStateException("Change tracking has not been started");
+        }
+        Timestamp next = safeNow(ctx);
+
+        List<FixedAssetsRegistry.Asset> changed = new ArrayList<>();
+        try (PreparedStatement stmt = ctx.prepare(SqlStatements.ASSETS_CHANGED_SINCE)) {
+            stmt.setTimestamp(1, since);
+            try (ResultSet rs = stmt.executeQuery()) {
+                AssetRowMapper mapper = new AssetRowMapper(rs);
+                while (rs.next()) {
+                    changed.add(mapper.map());
+                }
+            }
+        }
+
+        List<Integer> deleted = new ArrayList<>();
+        try (PreparedStatement stmt = ctx.prepare(SqlStatements.ASSETS_DELETED_SINCE)) {
+            stmt.setTimestamp(1, since);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    deleted.add(rs.getInt(1));
+                }
+            }
+        }
+        ctx.checkCancelled();
+        ctx.addRows(changed.size() + deleted.size());
+
+        List<Change> changes = new ArrayList<>(changed.size() + deleted.size());
+        for (FixedAssetsRegistry.Asset asset : changed) {
+            FixedAssetsRegistry.Asset before = store.getAsset(asset.getId());
+            store.upsert(asset);
+            changes.add(new Change(before, asset));
+        }
+        for (int assetId : deleted) {
+            FixedAssetsRegistry.Asset before = store.getAsset(assetId);
+            if (before != null) {
+                store.remove(assetId);
+                changes.add(new Change(before, null));
+            }
+        }
+        watermark = next;
+        return changes;
+    }
+
+    private Timestamp safeNow(QueryExecutor.QueryContext ctx) throws SQLException {
+        if (transactionsVisible) {
+            try (PreparedStatement stmt = ctx.prepare(SqlStatements.SELECT_SERVER_TIME_AND_OLDEST_TRANSACTION);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                long now = rs.getTimestamp(1).getTime();
+                Timestamp oldest = rs.getTimestamp(2); // Whole seconds, rounded down
+                long since = oldest == null ? now : Math.min(now, oldest.getTime());
+                boolean capped = since < now - MAX_HOLD_BACK_MILLIS;
+                if (capped) {
+                    if (!holdBackCapped) {
+                        System.err.println("A transaction open since " + oldest + " holds back change tracking by more than "
+                                + MAX_HOLD_BACK_MILLIS / 60_000 + " min; rows it wrote before then are missed by "
+                                + "Refresh until the next full load");
+                    }
+                    since = now - MAX_HOLD_BACK_MILLIS;
+                }
+                holdBackCapped = capped;
+                return new Timestamp(since - SAFETY_WINDOW_MILLIS);
+            } catch (SQLException e) {
+                if (e.getErrorCode() != ER_SPECIFIC_ACCESS_DENIED) {
+                    throw e;
+                }
+                transactionsVisible = false;
+                System.err.println("Cannot see open transactions (" + e.getMessage() + "); Refresh may miss rows "
+                        + "committed more than " + SAFETY_WINDOW_MILLIS / 1000 + " s after they were written");
+            }
+        }
+        try (PreparedStatement stmt = ctx.prepare(SqlStatements.SELECT_SERVER_TIME);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return new Timestamp(rs.getTimestamp(1).getTime() - SAFETY_WINDOW_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Streams the assets matching a filter from a forward-only MySQL cursor straight into a CSV
+// file, so memory use does not grow with the row count. Output goes through 64 KB buffers and
+// is gzip-compressed when the file name ends in ".gz". A cancelled or failed export deletes
+// the partial file.
+class AssetCsvExporter {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    static final String[] HEADER = {"ID", "Name", "Category", "Description", "Cost", "Purchase Date",
+            "Location", "Status", "Serial Number", "Supplier", "Warranty Expiry"};
+
+    // Writes the assets selected by the SQL to the file and returns the number of rows written
+    public int export(QueryExecutor.QueryContext ctx, String sql, List<Object> params, Path file)
+            throws SQLException, IOException {
+        boolean complete = false;
+        try (CsvWriter csv = new CsvWriter(new BufferedWriter(
+                new OutputStreamWriter(open(file), StandardCharsets.UTF_8), BUFFER_SIZE))) {
+            int rows = export(ctx, sql, params, csv);
+            complete = true;
+            return rows;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Writes the assets to an open CsvWriter, e.g. one on standard output, and returns the
+    // number of rows written; the caller closes it
+    public int export(QueryExecutor.QueryContext ctx, String sql, List<Object> params, CsvWriter csv)
+            throws SQLException, IOException {
+        try (PreparedStatement stmt = ctx.prepare(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            stmt.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream rows instead of buffering them all
+
+            csv.writeRecord(HEADER);
+            int rows = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                int id = rs.findColumn("id");
+                int name = rs.findColumn("name");
+                int category = rs.findColumn("category");
+                int description = rs.findColumn("description");
+                int cost = rs.findColumn("cost");
+                int purchaseDate = rs.findColumn("purchase_date");
+                int location = rs.findColumn("location");
+                int status = rs.findColumn("status");
+                int serialNumber = rs.findColumn("serial_number");
+                int supplier = rs.findColumn("supplier");
+                int warrantyExpiry = rs.findColumn("warranty_expiry");
+
+                while (rs.next()) {
+                    // Same values as the table shows
+                    csv.writeField(Integer.toString(rs.getInt(id)));
+                    csv.writeField(rs.getString(name));
+                    csv.writeField(rs.getString(category));
+                    csv.writeField(rs.getString(description));
+                    csv.writeField(formatCost(rs.getBigDecimal(cost)));
+                    csv.writeField(formatDate(rs.getDate(purchaseDate), ""));
+                    csv.writeField(rs.getString(location));
+                    csv.writeField(rs.getString(status));
+                    csv.writeField(rs.getString(serialNumber));
+                    csv.writeField(rs.getString(supplier));
+                    csv.writeField(formatDate(rs.getDate(warrantyExpiry), "N/A"));
+                    csv.endRecord();
+                    if (++rows % QueryExecutor.CHUNK_SIZE == 0) {
+                        ctx.progress(rows);
+                        ctx.checkCancelled();
+                    }
+                }
+            }
+            ctx.addRows(rows);
+            return rows;
+        }
+    }
+
+    // The file as a buffered stream, gzip-compressed when its name ends in ".gz"
+    static OutputStream open(Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        if (file.getFileName().toString().toLowerCase().endsWith(".gz")) {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    private static String formatCost(BigDecimal cost) {
+        return cost == null ? "" : "$" + cost.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static String formatDate(Date date, String missing) {
+        return date == null ? missing : date.toLocalDate().toString();
+    }
+}
@@ -0,0 +1,263 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Bulk import of assets from CSV. The file is parsed one record at a time; each row is checked
+// with the same rules as the asset dialog and queued with addBatch(). Batches are sent every
+// BATCH_SIZE rows (rewriteBatchedStatements turns each into multi-row INSERTs) and committed
+// every commitChunkSize rows. If a chunk fails, it is rolled back and replayed row by row so
+// only the offending rows are rejected. Columns are matched by header name, so a file written
+// by Export to CSV imports as is.
+class AssetCsvImporter {
+    static final int BATCH_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String[] REQUIRED_COLUMNS = {"name", "category", "cost", "purchasedate", "location", "status"};
+
+    // A rejected row, by the line it starts on
+    static class RowError {
+        final int line;
+        final String message;
+
+        RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+
+    static class Result {
+        int imported;
+        int rejected;
+        final List<RowError> errors = new ArrayList<>(); // The first MAX_REPORTED_ERRORS only
+        long elapsedNanos;
+
+        double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : imported * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        void reject(int line, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+
+    private final ReferenceDataCache referenceData;
+    private final int commitChunkSize;
+
+    AssetCsvImporter(ReferenceDataCache referenceData, int commitChunkSize) {
+        this.referenceData = referenceData;
+        this.commitChunkSize = commitChunkSize;
+    }
+
+    public Result importFile(QueryExecutor.QueryContext ctx, Path file) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        Set<String> categories = new HashSet<>(Arrays.asList(referenceData.getCategories()));
+        Set<String> locations = new HashSet<>(Arrays.asList(referenceData.getLocations()));
+        Set<String> statuses = new HashSet<>(Arrays.asList(referenceData.getStatuses()));
+
+        try (CsvReader csv = new CsvReader(new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), 1 << 16))) {
+            Map<String, Integer> columns = readHeader(csv);
+
+            Connection connection = ctx.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = ctx.prepare(SqlStatements.INSERT_ASSET)) {
+                List<FixedAssetsRegistry.Asset> chunk = new ArrayList<>(commitChunkSize);
+                List<Integer> chunkLines = new ArrayList<>(commitChunkSize);
+                int processed = 0;
+
+                List<String> record;
+                while ((record = csv.readRecord()) != null) {
+                    if (record.size() == 1 && record.get(0).isEmpty()) {
+                        continue; // Blank line
+                    }
+                    processed++;
+                    FixedAssetsRegistry.Asset asset;
+                    try {
+                        asset = parse(record, columns);
+                    } catch (IllegalArgumentException e) {
+                        result.reject(csv.getRecordLine(), e.getMessage());
+                        continue;
+                    }
+                    String error = asset.validationError();
+                    if (error == null && !categories.contains(asset.getCategory())) {
+                        error = "Unknown category '" + asset.getCategory() + "'";
+                    } else if (error == null && !locations.contains(asset.getLocation())) {
+                        error = "Unknown location '" + asset.getLocation() + "'";
+                    } else if (error == null && !statuses.contains(asset.getStatus())) {
+                        error = "Unknown status '" + asset.getStatus() + "'";
+                    }
+                    if (error != null) {
+                        result.reject(csv.getRecordLine(), error);
+                        continue;
+                    }
+
+                    bind(stmt, asset);
+                    stmt.addBatch();
+                    chunk.add(asset);
+                    chunkLines.add(csv.getRecordLine());
+                    if (chunk.size() % BATCH_SIZE == 0) {
+                        executeBatch(stmt, connection, chunk, chunkLines, result);
+                    }
+                    if (chunk.size() >= commitChunkSize) {
+                        commitChunk(stmt, connection, chunk, chunkLines, result);
+                        ctx.progress(processed);
+                        ctx.checkCancelled();
+                    }
+                }
+                commitChunk(stmt, connection, chunk, chunkLines, result);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+        ctx.addRows(result.imported);
+        return result;
+    }
+
+    // Maps normalized header names ("Purchase Date" -> "purchasedate") to column positions
+    private static Map<String, Integer> readHeader(CsvReader csv) throws IOException {
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i);
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1); // Byte order mark written by spreadsheet programs
+            }
+            columns.put(normalize(name), i);
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IOException("Missing required column '" + required + "' in the header");
+            }
+        }
+        return columns;
+    }
+
+    private static String normalize(String header) {
+        return header.replaceAll("[\\s_.]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static FixedAssetsRegistry.Asset parse(List<String> record, Map<String, Integer> columns) {
+        String cost = field(record, columns, "cost").replace("$", "").replace(",", "");
+        String rate = field(record, columns, "depreciationrate");
+        String warranty = field(record, columns, "warrantyexpiry");
+        try {
+            return new FixedAssetsRegistry.Asset(0,
+                    field(record, columns, "name"),
+                    emptyToNull(field(record, columns, "category")),
+                    field(record, columns, "description"),
+                    Double.parseDouble(cost),
+                    LocalDate.parse(field(record, columns, "purchasedate")),
+                    emptyToNull(field(record, columns, "location")),
+                    emptyToNull(field(record, columns, "status")),
+                    field(record, columns, "serialnumber"),
+                    field(record, columns, "supplier"),
+                    warranty.isEmpty() || warranty.equalsIgnoreCase("N/A") ? null : LocalDate.parse(warranty),
+                    rate.isEmpty() ? 0.0 : Double.parseDouble(rate));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for cost or depreciation rate");
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date '" + e.getParsedString() + "', expected YYYY-MM-DD");
+        }
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index != null && index < record.size() ? record.get(index).trim() : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void bind(PreparedStatement stmt, FixedAssetsRegistry.Asset asset) throws SQLException {
+        stmt.setString(1, asset.getName());
+        stmt.setString(2, asset.getCategory());
+        stmt.setString(3, asset.getDescription());
+        stmt.setDouble(4, asset.getCost());
+        stmt.setDate(5, Date.valueOf(asset.getPurchaseDate()));
+        stmt.setString(6, asset.getLocation());
+        stmt.setString(7, asset.getStatus());
+        stmt.setString(8, asset.getSerialNumber());
+        stmt.setString(9, asset.getSupplier());
+        stmt.setDate(10, asset.getWarrantyExpiry() != null ? Date.valueOf(asset.getWarrantyExpiry()) : null);
+        stmt.setDouble(11, asset.getDepreciationRate());
+    }
+
+    // Sends the queued rows; on failure the whole chunk is replayed row by row
+    private static void executeBatch(PreparedStatement stmt, Connection connection, List<FixedAssetsRegistry.Asset> chunk,
+                                     List<Integer> chunkLines, Result result) throws SQLException {
+        try {
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            stmt.clearBatch();
+            connection.rollback();
+            replayRowByRow(stmt, connection, chunk, chunkLines, result);
+        }
+    }
+
+    private static void commitChunk(PreparedStatement stmt, Connection connection, List<FixedAssetsRegistry.Asset> chunk,
+                                    List<Integer> chunkLines, Result result) throws SQLException {
+        if (!chunk.isEmpty()) {
+            executeBatch(stmt, connection, chunk, chunkLines, result);
+        }
+        if (!chunk.isEmpty()) {
+            connection.commit();
+            result.imported += chunk.size();
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    // MySQL keeps the transaction open after a failed statement, so the good rows still commit together.
+    // Leaves the chunk empty: whatever it held has either been committed or rejected.
+    private static void replayRowByRow(PreparedStatement stmt, Connection connection, List<FixedAssetsRegistry.Asset> chunk,
+                                       List<Integer> chunkLines, Result result) throws SQLException {
+        for (int i = 0; i < chunk.size(); i++) {
+            bind(stmt, chunk.get(i));
+            try {
+                stmt.executeUpdate();
+                result.imported++;
+            } catch (SQLException e) {
+                result.reject(chunkLines.get(i), e.getMessage());
+            }
+        }
+        connection.commit();
+        chunk.clear();
+        chunkLines.clear();
+    }
+}
@@ -0,0 +1,103 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// The asset summary and depreciation report, built from the database without touching any
+// window, so the registry window and RegistryBatch produce the same rows. Queries take a WHERE
+// fragment from SqlStatements.assetFilter() and its parameters ("" and none for every asset).
+final class AssetReports {
+
+    private AssetReports() {
+    }
+
+    // One row per category (disposed assets left out) and one per status
+    static ReportTableModel.Rows newSummaryModel() {
+        ReportTableModel.Format text = ReportTableModel.Format.TEXT;
+        ReportTableModel.Format money = ReportTableModel.Format.MONEY;
+        return new ReportTableModel.Rows(
+                new String[]{"Grouped By", "Group", "Count", "Total Value", "Avg Value", "Min Value", "Max Value"},
+                new ReportTableModel.Format[]{text, text, ReportTableModel.Format.INTEGER, money, money, money, money},
+                new int[]{10, 20, 8, 16, 14, 14, 14});
+    }
+
+    // Summary rows from the running aggregates
+    static List<Object[]> summaryRows(String groupedBy, List<AssetAggregates.Aggregate> aggregates) {
+        List<Object[]> rows = new ArrayList<>(aggregates.size());
+        for (AssetAggregates.Aggregate line : aggregates) {
+            rows.add(new Object[]{groupedBy, line.key, line.count, line.getTotalValue(), line.getAverageValue(),
+                    line.getMinValue(), line.getMaxValue()});
+        }
+        return rows;
+    }
+
+    // Summary rows from MySQL, by category and then by status, handed to the sink in chunks as
+    // they are read; the window publishes them to the event thread
+    static void readSummary(QueryExecutor.QueryContext ctx, String whereClause, List<Object> params,
+                            Consumer<List<Object[]>> sink) throws SQLException {
+        readSummaryRows(ctx, "Category", SqlStatements.assetSummary(whereClause), params, sink);
+        readSummaryRows(ctx, "Status", SqlStatements.assetStatusSummary(whereClause), params, sink);
+    }
+
+    // The first column of the query names the group
+    private static void readSummaryRows(QueryExecutor.QueryContext ctx, String groupedBy, String sql,
+                                        List<Object> params, Consumer<List<Object[]>> sink) throws SQLException {
+        try (PreparedStatement stmt = ctx.prepare(sql)) {
+            setParams(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<Object[]> chunk = new ArrayList<>();
+                int rows = 0;
+                while (rs.next()) {
+                    rows++;
+                    chunk.add(new Object[]{groupedBy, rs.getString(1), rs.getInt("count"), rs.getDouble("total_value"),
+                            rs.getDouble("avg_value"), rs.getDouble("min_value"), rs.getDouble("max_value")});
+                    if (chunk.size() == QueryExecutor.CHUNK_SIZE) {
+                        sink.accept(chunk);
+                        chunk = new ArrayList<>();
+                    }
+                }
+                sink.accept(chunk);
+                ctx.addRows(rows);
+            }
+        }
+    }
+
+    // The depreciation inputs from MySQL, for when the columnar store is not loaded
+    static DepreciationEngine.Basis readDepreciationBasis(QueryExecutor.QueryContext ctx, String whereClause,
+                                                          List<Object> params) throws SQLException {
+        try (PreparedStatement stmt = ctx.prepare(SqlStatements.depreciationBasis(whereClause))) {
+            setParams(stmt, params);
+            stmt.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream rows instead of buffering them all
+            try (ResultSet rs = stmt.executeQuery()) {
+                DepreciationEngine.Basis basis = DepreciationEngine.readBasis(rs);
+                ctx.addRows(basis.size);
+                return basis;
+            }
+        }
+    }
+
+    // Book values on the as-of date and each of the following anniversaries of it
+    static DepreciationReportModel depreciationReport(DepreciationEngine engine, DepreciationEngine.Basis basis,
+                                                      DepreciationEngine.Method method, LocalDate asOf,
+                                                      int projectionYears) {
+        int[] days = new int[projectionYears + 1];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = (int) asOf.plusYears(i).toEpochDay();
+        }
+        long start = System.nanoTime();
+        long[][] schedule = engine.schedule(basis, method, days);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // The rows are read from the engine's columns as they are painted or written
+        return new DepreciationReportModel(basis, method, asOf, days, schedule, elapsedMillis);
+    }
+
+    private static void setParams(PreparedStatement stmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(i + 1, params.get(i));
+        }
+    }
+}
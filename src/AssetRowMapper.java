@@ -0,0 +1,57 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Turns rows of a query selecting SqlStatements.ASSET_COLUMNS (fixed_assets with its lookup names
+// joined in) into Assets. Column indexes are resolved once when the mapper is created, so each row
+// is read by index; dates come back as LocalDate directly (JDBC 4.2) instead of through
+// java.sql.Date. Create one per ResultSet and call map() for each row.
+class AssetRowMapper {
+    private final ResultSet rs;
+    private final int id;
+    private final int name;
+    private final int category;
+    private final int description;
+    private final int cost;
+    private final int purchaseDate;
+    private final int location;
+    private final int status;
+    private final int serialNumber;
+    private final int supplier;
+    private final int warrantyExpiry;
+    private final int depreciationRate;
+
+    AssetRowMapper(ResultSet rs) throws SQLException {
+        this.rs = rs;
+        id = rs.findColumn("id");
+        name = rs.findColumn("name");
+        category = rs.findColumn("category");
+        description = rs.findColumn("description");
+        cost = rs.findColumn("cost");
+        purchaseDate = rs.findColumn("purchase_date");
+        location = rs.findColumn("location");
+        status = rs.findColumn("status");
+        serialNumber = rs.findColumn("serial_number");
+        supplier = rs.findColumn("supplier");
+        warrantyExpiry = rs.findColumn("warranty_expiry");
+        depreciationRate = rs.findColumn("depreciation_rate");
+    }
+
+    // The asset on the current row
+    public FixedAssetsRegistry.Asset map() throws SQLException {
+        return new FixedAssetsRegistry.Asset(
+                rs.getInt(id),
+                rs.getString(name),
+                rs.getString(category),
+                rs.getString(description),
+                rs.getDouble(cost),
+                rs.getObject(purchaseDate, LocalDate.class),
+                rs.getString(location),
+                rs.getString(status),
+                rs.getString(serialNumber),
+                rs.getString(supplier),
+                rs.getObject(warrantyExpiry, LocalDate.class),
+                rs.getDouble(depreciationRate)
+        );
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process trigram index over asset name, description and serial number. Each lower-cased
+// trigram maps to the sorted ids of the assets containing it. A search intersects the posting
+// lists of the term's trigrams and then checks the few candidates against the columnar store,
+// replacing the "%term%" LIKE scan that could never use a MySQL index.
+// The index follows the store: rebuilt after a full load and patched on every single change.
+class AssetSearchIndex implements ColumnarAssetStore.ChangeListener {
+    static final int GRAM = 3;
+
+    // Sorted, growable list of asset ids
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) return;
+                insertAt(-at - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        private void insertAt(int at, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+
+    private final ColumnarAssetStore store;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Postings> postings = new HashMap<>();
+    private volatile boolean ready;
+
+    AssetSearchIndex(ColumnarAssetStore store) {
+        this.store = store;
+        store.addChangeListener(this);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Ids (ascending) of assets whose name, description or serial number contains the term,
+    // ignoring case. Terms shorter than a trigram are answered by scanning the store.
+    public int[] search(String term) {
+        String needle = term.trim();
+        if (needle.length() < GRAM) {
+            return store.filterIds(needle, null, null);
+        }
+
+        int[] candidates;
+        lock.readLock().lock();
+        try {
+            Set<Long> grams = new HashSet<>();
+            collectGrams(needle, grams);
+            Postings[] lists = new Postings[grams.size()];
+            int i = 0;
+            for (Long gram : grams) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists[i++] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            candidates = Arrays.copyOf(lists[0].ids, lists[0].size);
+            for (int j = 1; j < lists.length && candidates.length > 0; j++) {
+                candidates = intersect(candidates, lists[j]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Trigrams can match out of order; confirm each candidate outside our lock
+        return store.filterIds(candidates, needle, null, null);
+    }
+
+    @Override
+    public void reloaded(ColumnarAssetStore source) {
+        Map<Long, Postings> rebuilt = new HashMap<>();
+        Set<Long> grams = new HashSet<>();
+        source.forEachText((id, name, description, serialNumber) -> {
+            grams.clear();
+            collectDocumentGrams(name, description, serialNumber, grams);
+            for (Long gram : grams) {
+                rebuilt.computeIfAbsent(gram, g -> new Postings()).add(id);
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            postings = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void changed(FixedAssetsRegistry.Asset before, FixedAssetsRegistry.Asset after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                Set<Long> grams = new HashSet<>();
+                collectDocumentGrams(before.getName(), before.getDescription(), before.getSerialNumber(), grams);
+                for (Long gram : grams) {
+                    Postings list = postings.get(gram);
+                    if (list != null) {
+                        list.remove(before.getId());
+                        if (list.size == 0) postings.remove(gram);
+                    }
+                }
+            }
+            if (after != null) {
+                Set<Long> grams = new HashSet<>();
+                collectDocumentGrams(after.getName(), after.getDescription(), after.getSerialNumber(), grams);
+                for (Long gram : grams) {
+                    postings.computeIfAbsent(gram, g -> new Postings()).add(after.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int[] intersect(int[] sorted, Postings list) {
+        int[] out = new int[Math.min(sorted.length, list.size)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sorted.length && j < list.size) {
+            int a = sorted[i];
+            int b = list.ids[j];
+            if (a == b) {
+                out[count++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    // Fields are indexed separately so no trigram spans two of them
+    private static void collectDocumentGrams(String name, String description, String serialNumber, Set<Long> grams) {
+        collectGrams(name, grams);
+        collectGrams(description, grams);
+        collectGrams(serialNumber, grams);
+    }
+
+    private static void collectGrams(String text, Set<Long> grams) {
+        if (text == null || text.length() < GRAM) {
+            return;
+        }
+        long c0 = fold(text.charAt(0));
+        long c1 = fold(text.charAt(1));
+        for (int i = 2; i < text.length(); i++) {
+            long c2 = fold(text.charAt(i));
+            grams.add((c0 << 32) | (c1 << 16) | c2);
+            c0 = c1;
+            c1 = c2;
+        }
+    }
+
+    // Same case folding as String.regionMatches(true, ...), which confirms the candidates
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
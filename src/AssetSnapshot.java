@@ -0,0 +1,135 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+
+// Local binary copy of the columnar store and the lookup lists, so the window can show the
+// registry at startup before MySQL answers, and read-only when it does not answer at all.
+// The file is memory-mapped on restore and its columns are copied out with bulk reads. It also
+// records the change feed watermark, so reconciling afterwards only pulls what changed since.
+//
+// Layout (big-endian): magic, version, saved-at millis, watermark millis, the category,
+// location and status lists, then the store's columns (ColumnarAssetStore.writeTo()).
+// Strings are an int byte length (-1 for null) followed by UTF-8 bytes.
+class AssetSnapshot {
+    private static final int MAGIC = 0x46415253; // "FARS"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private long savedAt;
+    private Timestamp watermark;
+    private String[] categories;
+    private String[] locations;
+    private String[] statuses;
+
+    AssetSnapshot(Path file) {
+        this.file = file;
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(file);
+    }
+
+    // Loads the snapshot into the store; the header fields are available afterwards
+    public void restore(ColumnarAssetStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a snapshot this version can read: " + file);
+            }
+            savedAt = in.getLong();
+            watermark = new Timestamp(in.getLong());
+            categories = readStrings(in);
+            locations = readStrings(in);
+            statuses = readStrings(in);
+            store.restore(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot is truncated: " + file, e);
+        }
+    }
+
+    // Writes a new snapshot next to the old one and swaps it in, so a crash mid-write never
+    // leaves a half-written file behind
+    public void save(ColumnarAssetStore store, String[] categories, String[] locations, String[] statuses,
+                     Timestamp watermark) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(watermark.getTime());
+            writeStrings(out, categories);
+            writeStrings(out, locations);
+            writeStrings(out, statuses);
+            store.writeTo(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getSavedAt() { return savedAt; }
+    public Timestamp getWatermark() { return watermark; }
+    public String[] getCategories() { return categories; }
+    public String[] getLocations() { return locations; }
+    public String[] getStatuses() { return statuses; }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[checkLength(in, length, 1)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    // Reads a count of elements that take at least minBytes each in the file
+    static int readLength(ByteBuffer in, int minBytes) throws IOException {
+        return checkLength(in, in.getInt(), minBytes);
+    }
+
+    // A corrupt length fails here, before it sizes an allocation: that many elements must fit in
+    // what is left of the file
+    private static int checkLength(ByteBuffer in, int length, int minBytes) throws IOException {
+        if (length < 0 || (long) length * minBytes > in.remaining()) {
+            throw new IOException("Snapshot is corrupt: a length of " + length + " with "
+                    + in.remaining() + " bytes left");
+        }
+        return length;
+    }
+
+    private static String[] readStrings(ByteBuffer in) throws IOException {
+        String[] values = new String[readLength(in, Integer.BYTES)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(in);
+        }
+        return values;
+    }
+}
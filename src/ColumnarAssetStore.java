@@ -0,0 +1,870 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory columnar mirror of fixed_assets. Rows are kept in id order across primitive arrays:
+// cost in cents, dates as epoch days, depreciation rate in basis points, and category, location,
+// status and supplier dictionary-encoded into small int codes. Filters, totals and summaries scan
+// these arrays instead of going to MySQL. All access goes through a read/write lock.
+class ColumnarAssetStore {
+    static final int NO_DATE = Integer.MIN_VALUE;
+    static final int NULL_CODE = -1;
+
+    // Maps each distinct string of a low-cardinality column to a dense int code
+    static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+        private int size;
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                code = size;
+                values[size++] = value;
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        // Code of an existing value without adding it; NULL_CODE if the value never occurs
+        int codeOf(String value) {
+            Integer code = value != null ? codes.get(value) : null;
+            return code != null ? code : NULL_CODE;
+        }
+
+        String decode(int code) {
+            return code == NULL_CODE ? null : values[code];
+        }
+
+        int size() {
+            return size;
+        }
+
+        Dictionary copy() {
+            Dictionary copy = new Dictionary();
+            copy.codes.putAll(codes);
+            copy.values = values.clone();
+            copy.size = size;
+            return copy;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (int code = 0; code < size; code++) {
+                AssetSnapshot.writeString(out, values[code]);
+            }
+        }
+
+        // Encoding the values in their saved order gives them back their saved codes
+        static Dictionary readFrom(ByteBuffer in) throws IOException {
+            Dictionary dictionary = new Dictionary();
+            int count = AssetSnapshot.readLength(in, Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                dictionary.encode(AssetSnapshot.readString(in));
+            }
+            return dictionary;
+        }
+    }
+
+    // Count and summed cost of a set of rows
+    static class Totals {
+        final int count;
+        final long costCents;
+
+        Totals(int count, long costCents) {
+            this.count = count;
+            this.costCents = costCents;
+        }
+
+        double getCost() { return costCents / 100.0; }
+    }
+
+    // Told about every change so derived structures (search index, aggregates) stay in step.
+    // reloaded() runs under the read lock after a full load, changed() under the write lock after
+    // a single upsert or removal; before is null for an insert and after is null for a removal.
+    interface ChangeListener {
+        void reloaded(ColumnarAssetStore store);
+        void changed(FixedAssetsRegistry.Asset before, FixedAssetsRegistry.Asset after);
+    }
+
+    interface TextVisitor {
+        void visit(int id, String name, String description, String serialNumber);
+    }
+
+    interface CostVisitor {
+        void visit(String category, String status, long costCents);
+    }
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SORT_COLUMNS = 11; // PagedAssetTableModel.COLUMN_NAMES
+    // Smallest a row can be in a snapshot: its id, cost and seven int columns, and the lengths of
+    // its three strings
+    private static final int ROW_BYTES = Integer.BYTES + Long.BYTES + 7 * Integer.BYTES + 3 * Integer.BYTES;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Dictionary categories = new Dictionary();
+    private Dictionary locations = new Dictionary();
+    private Dictionary statuses = new Dictionary();
+    private Dictionary suppliers = new Dictionary();
+
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private long[] costCents = new long[INITIAL_CAPACITY];
+    private int[] purchaseDays = new int[INITIAL_CAPACITY];
+    private int[] warrantyDays = new int[INITIAL_CAPACITY];
+    private int[] rateBasisPoints = new int[INITIAL_CAPACITY];
+    private int[] categoryCodes = new int[INITIAL_CAPACITY];
+    private int[] locationCodes = new int[INITIAL_CAPACITY];
+    private int[] statusCodes = new int[INITIAL_CAPACITY];
+    private int[] supplierCodes = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private String[] serialNumbers = new String[INITIAL_CAPACITY];
+    private volatile boolean loaded;
+    private volatile long version; // Bumped after every load and change, once the listeners have run
+    // Upserts (Asset) and removals (Integer id) made while a load is streaming, replayed after the swap
+    private List<Object> writesDuringLoad;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Per column of the asset table, each row's place in its order (see sortIds()); null until
+    // a sort needs it and again after every write
+    private final AtomicReferenceArray<int[]> sortRanks = new AtomicReferenceArray<>(SORT_COLUMNS);
+
+    // Replaces the contents with every row of fixed_assets. Rows are streamed into fresh columns
+    // without holding the lock, so readers keep using the old contents until the swap.
+    public void load(Connection connection) throws SQLException {
+        beginLoad();
+        ColumnarAssetStore fresh = new ColumnarAssetStore();
+        try (PreparedStatement stmt = connection.prepareStatement(SqlStatements.SELECT_ALL_ASSETS)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream rows instead of buffering them all
+            try (ResultSet rs = stmt.executeQuery()) {
+                fresh.appendAll(rs);
+            }
+        } catch (SQLException e) {
+            abortLoad();
+            throw e;
+        }
+        install(fresh);
+    }
+
+    // Replaces the contents with the columns of a snapshot, positioned after its header
+    // (see AssetSnapshot). Throws BufferUnderflowException if the snapshot is truncated, and
+    // IOException if a count or length in it cannot be right.
+    public void restore(ByteBuffer in) throws IOException {
+        beginLoad();
+        ColumnarAssetStore fresh = new ColumnarAssetStore();
+        try {
+            fresh.readColumns(in);
+        } catch (IOException | RuntimeException e) {
+            abortLoad();
+            throw e;
+        }
+        install(fresh);
+    }
+
+    // Writes the columns in the layout restore() reads. They are copied under the lock and written
+    // once it is released, so a slow disk keeps no writer waiting, nor the readers queued behind it.
+    public void writeTo(DataOutputStream out) throws IOException {
+        ColumnarAssetStore copy = new ColumnarAssetStore();
+        lock.readLock().lock();
+        try {
+            copy.copyColumns(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+        copy.writeColumns(out);
+    }
+
+    private void copyColumns(ColumnarAssetStore other) {
+        categories = other.categories.copy();
+        locations = other.locations.copy();
+        statuses = other.statuses.copy();
+        suppliers = other.suppliers.copy();
+        size = other.size;
+        ids = Arrays.copyOf(other.ids, size);
+        costCents = Arrays.copyOf(other.costCents, size);
+        purchaseDays = Arrays.copyOf(other.purchaseDays, size);
+        warrantyDays = Arrays.copyOf(other.warrantyDays, size);
+        rateBasisPoints = Arrays.copyOf(other.rateBasisPoints, size);
+        categoryCodes = Arrays.copyOf(other.categoryCodes, size);
+        locationCodes = Arrays.copyOf(other.locationCodes, size);
+        statusCodes = Arrays.copyOf(other.statusCodes, size);
+        supplierCodes = Arrays.copyOf(other.supplierCodes, size);
+        names = Arrays.copyOf(other.names, size);
+        descriptions = Arrays.copyOf(other.descriptions, size);
+        serialNumbers = Arrays.copyOf(other.serialNumbers, size);
+    }
+
+    private void writeColumns(DataOutputStream out) throws IOException {
+        categories.writeTo(out);
+        locations.writeTo(out);
+        statuses.writeTo(out);
+        suppliers.writeTo(out);
+        out.writeInt(size);
+        for (int row = 0; row < size; row++) out.writeInt(ids[row]);
+        for (int row = 0; row < size; row++) out.writeLong(costCents[row]);
+        for (int row = 0; row < size; row++) out.writeInt(purchaseDays[row]);
+        for (int row = 0; row < size; row++) out.writeInt(warrantyDays[row]);
+        for (int row = 0; row < size; row++) out.writeInt(rateBasisPoints[row]);
+        for (int row = 0; row < size; row++) out.writeInt(categoryCodes[row]);
+        for (int row = 0; row < size; row++) out.writeInt(locationCodes[row]);
+        for (int row = 0; row < size; row++) out.writeInt(statusCodes[row]);
+        for (int row = 0; row < size; row++) out.writeInt(supplierCodes[row]);
+        for (int row = 0; row < size; row++) AssetSnapshot.writeString(out, names[row]);
+        for (int row = 0; row < size; row++) AssetSnapshot.writeString(out, descriptions[row]);
+        for (int row = 0; row < size; row++) AssetSnapshot.writeString(out, serialNumbers[row]);
+    }
+
+    private void readColumns(ByteBuffer in) throws IOException {
+        categories = Dictionary.readFrom(in);
+        locations = Dictionary.readFrom(in);
+        statuses = Dictionary.readFrom(in);
+        suppliers = Dictionary.readFrom(in);
+        int rows = AssetSnapshot.readLength(in, ROW_BYTES);
+        ensureCapacity(rows);
+        size = rows;
+        readInts(in, ids, rows);
+        in.asLongBuffer().get(costCents, 0, rows);
+        in.position(in.position() + rows * Long.BYTES);
+        readInts(in, purchaseDays, rows);
+        readInts(in, warrantyDays, rows);
+        readInts(in, rateBasisPoints, rows);
+        readInts(in, categoryCodes, rows);
+        readInts(in, locationCodes, rows);
+        readInts(in, statusCodes, rows);
+        readInts(in, supplierCodes, rows);
+        for (int row = 0; row < rows; row++) names[row] = AssetSnapshot.readString(in);
+        for (int row = 0; row < rows; row++) descriptions[row] = AssetSnapshot.readString(in);
+        for (int row = 0; row < rows; row++) serialNumbers[row] = AssetSnapshot.readString(in);
+    }
+
+    private static void readInts(ByteBuffer in, int[] column, int rows) {
+        in.asIntBuffer().get(column, 0, rows);
+        in.position(in.position() + rows * Integer.BYTES);
+    }
+
+    private void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            writesDuringLoad = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void abortLoad() {
+        lock.writeLock().lock();
+        try {
+            writesDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Swaps in freshly built columns, replays writes made meanwhile and tells the listeners
+    private void install(ColumnarAssetStore fresh) {
+        lock.writeLock().lock();
+        try {
+            List<Object> writes = writesDuringLoad;
+            writesDuringLoad = null;
+            adopt(fresh);
+            for (Object write : writes) {
+                if (write instanceof FixedAssetsRegistry.Asset asset) {
+                    applyUpsert(asset);
+                } else {
+                    applyRemove((Integer) write);
+                }
+            }
+            loaded = true;
+            lock.readLock().lock(); // Downgrade: listeners rebuild while writers stay out
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            for (ChangeListener listener : listeners) {
+                listener.reloaded(this);
+            }
+            version++; // Writers are still locked out
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    private void appendAll(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("id");
+        int name = rs.findColumn("name");
+        int category = rs.findColumn("category");
+        int description = rs.findColumn("description");
+        int cost = rs.findColumn("cost");
+        int purchaseDate = rs.findColumn("purchase_date");
+        int location = rs.findColumn("location");
+        int status = rs.findColumn("status");
+        int serialNumber = rs.findColumn("serial_number");
+        int supplier = rs.findColumn("supplier");
+        int warrantyExpiry = rs.findColumn("warranty_expiry");
+        int depreciationRate = rs.findColumn("depreciation_rate");
+
+        while (rs.next()) {
+            ensureCapacity(size + 1);
+            int row = size++;
+            ids[row] = rs.getInt(id);
+            names[row] = rs.getString(name);
+            categoryCodes[row] = categories.encode(rs.getString(category));
+            descriptions[row] = rs.getString(description);
+            costCents[row] = toCents(rs.getBigDecimal(cost));
+            purchaseDays[row] = toEpochDay(rs.getDate(purchaseDate));
+            locationCodes[row] = locations.encode(rs.getString(location));
+            statusCodes[row] = statuses.encode(rs.getString(status));
+            serialNumbers[row] = rs.getString(serialNumber);
+            supplierCodes[row] = suppliers.encode(rs.getString(supplier));
+            warrantyDays[row] = toEpochDay(rs.getDate(warrantyExpiry));
+            rateBasisPoints[row] = (int) toCents(rs.getBigDecimal(depreciationRate));
+        }
+    }
+
+    private void adopt(ColumnarAssetStore other) {
+        categories = other.categories;
+        locations = other.locations;
+        statuses = other.statuses;
+        suppliers = other.suppliers;
+        size = other.size;
+        ids = other.ids;
+        costCents = other.costCents;
+        purchaseDays = other.purchaseDays;
+        warrantyDays = other.warrantyDays;
+        rateBasisPoints = other.rateBasisPoints;
+        categoryCodes = other.categoryCodes;
+        locationCodes = other.locationCodes;
+        statusCodes = other.statusCodes;
+        supplierCodes = other.supplierCodes;
+        names = other.names;
+        descriptions = other.descriptions;
+        serialNumbers = other.serialNumbers;
+        clearSortRanks();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Changes whenever the contents do, so two reads at the same version saw the same rows
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Inserts the asset, or overwrites it when its id is already present
+    public void upsert(FixedAssetsRegistry.Asset asset) {
+        lock.writeLock().lock();
+        try {
+            if (writesDuringLoad != null) {
+                writesDuringLoad.add(asset);
+            }
+            FixedAssetsRegistry.Asset before = applyUpsert(asset);
+            for (ChangeListener listener : listeners) {
+                listener.changed(before, asset);
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(int assetId) {
+        lock.writeLock().lock();
+        try {
+            if (writesDuringLoad != null) {
+                writesDuringLoad.add(assetId);
+            }
+            int row = Arrays.binarySearch(ids, 0, size, assetId);
+            FixedAssetsRegistry.Asset before = row >= 0 ? toAsset(row) : null;
+            if (!applyRemove(assetId)) {
+                return false;
+            }
+            for (ChangeListener listener : listeners) {
+                listener.changed(before, null);
+            }
+            version++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the asset as it was before, or null if it was inserted
+    private FixedAssetsRegistry.Asset applyUpsert(FixedAssetsRegistry.Asset asset) {
+        int row = Arrays.binarySearch(ids, 0, size, asset.getId());
+        FixedAssetsRegistry.Asset before = row >= 0 ? toAsset(row) : null;
+        clearSortRanks();
+        if (row < 0) {
+            row = -row - 1;
+            ensureCapacity(size + 1);
+            shift(row, row + 1, size - row);
+            size++;
+        }
+        ids[row] = asset.getId();
+        names[row] = asset.getName();
+        categoryCodes[row] = categories.encode(asset.getCategory());
+        descriptions[row] = asset.getDescription();
+        costCents[row] = Math.round(asset.getCost() * 100);
+        purchaseDays[row] = (int) asset.getPurchaseDate().toEpochDay();
+        locationCodes[row] = locations.encode(asset.getLocation());
+        statusCodes[row] = statuses.encode(asset.getStatus());
+        serialNumbers[row] = asset.getSerialNumber();
+        supplierCodes[row] = suppliers.encode(asset.getSupplier());
+        warrantyDays[row] = asset.getWarrantyExpiry() != null ?
+                (int) asset.getWarrantyExpiry().toEpochDay() : NO_DATE;
+        rateBasisPoints[row] = (int) Math.round(asset.getDepreciationRate() * 100);
+        return before;
+    }
+
+    private boolean applyRemove(int assetId) {
+        int row = Arrays.binarySearch(ids, 0, size, assetId);
+        if (row < 0) {
+            return false;
+        }
+        clearSortRanks();
+        shift(row + 1, row, size - row - 1);
+        size--;
+        names[size] = null;
+        descriptions[size] = null;
+        serialNumbers[size] = null;
+        return true;
+    }
+
+    // The asset with the given id, or null if the store does not hold it
+    public FixedAssetsRegistry.Asset getAsset(int assetId) {
+        lock.readLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, assetId);
+            return row < 0 ? null : toAsset(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The assets with the given ids (sorted ascending) from index from up to to, in one pass under
+    // the lock; ids the store does not hold are skipped
+    public List<FixedAssetsRegistry.Asset> getAssets(int[] assetIds, int from, int to) {
+        lock.readLock().lock();
+        try {
+            List<FixedAssetsRegistry.Asset> assets = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                int row = Arrays.binarySearch(ids, 0, size, assetIds[i]);
+                if (row >= 0) {
+                    assets.add(toAsset(row));
+                }
+            }
+            return assets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids, in id order, of the assets matching the same filters as FixedAssetsRegistry.filterTable():
+    // a case-insensitive substring of name, description or serial number, and exact category and status
+    public int[] filterIds(String searchText, String category, String status) {
+        return filterIds(null, searchText, category, status);
+    }
+
+    // Same as above, restricted to the given candidate ids (sorted ascending), e.g. from the search index
+    public int[] filterIds(int[] candidateIds, String searchText, String category, String status) {
+        return filterIds(candidateIds, searchText, category, status, null, null);
+    }
+
+    // Same as above, also matching an exact location and a serial number (ignoring case)
+    public int[] filterIds(int[] candidateIds, String searchText, String category, String status,
+                           String location, String serialNumber) {
+        lock.readLock().lock();
+        try {
+            int categoryCode = category != null ? categories.codeOf(category) : NULL_CODE;
+            int statusCode = status != null ? statuses.codeOf(status) : NULL_CODE;
+            int locationCode = location != null ? locations.codeOf(location) : NULL_CODE;
+            if ((category != null && categoryCode == NULL_CODE) || (status != null && statusCode == NULL_CODE)
+                    || (location != null && locationCode == NULL_CODE)) {
+                return new int[0];
+            }
+            boolean search = searchText != null && !searchText.isEmpty();
+
+            int candidates = candidateIds != null ? candidateIds.length : size;
+            int[] matches = new int[candidates];
+            int count = 0;
+            for (int i = 0; i < candidates; i++) {
+                int row = candidateIds != null ? Arrays.binarySearch(ids, 0, size, candidateIds[i]) : i;
+                if (row < 0) continue;
+                if (category != null && categoryCodes[row] != categoryCode) continue;
+                if (status != null && statusCodes[row] != statusCode) continue;
+                if (location != null && locationCodes[row] != locationCode) continue;
+                if (serialNumber != null && !serialNumber.equalsIgnoreCase(serialNumbers[row])) continue;
+                if (search && !containsIgnoreCase(names[row], searchText)
+                        && !containsIgnoreCase(descriptions[row], searchText)
+                        && !containsIgnoreCase(serialNumbers[row], searchText)) continue;
+                matches[count++] = ids[row];
+            }
+            return Arrays.copyOf(matches, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Visits the searchable text of every row, in id order
+    public void forEachText(TextVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                visitor.visit(ids[row], names[row], descriptions[row], serialNumbers[row]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Visits the category, status and cost of every row, in id order
+    public void forEachCost(CostVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                visitor.visit(categories.decode(categoryCodes[row]), statuses.decode(statusCodes[row]), costCents[row]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Count and cost of the given ids; ids the store does not hold are skipped
+    public Totals totals(int[] assetIds) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            long sum = 0;
+            for (int id : assetIds) {
+                int row = Arrays.binarySearch(ids, 0, size, id);
+                if (row >= 0) {
+                    count++;
+                    sum += costCents[row];
+                }
+            }
+            return new Totals(count, sum);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The ids in the order of a column of the asset table (PagedAssetTableModel's model index)
+    // and then by id, as SqlStatements.ASSET_SORT_KEYS orders them in MySQL: text ignoring case
+    // with NULL as empty, a missing warranty first. Ids the store does not hold go last. Each
+    // row's place in a column's order is worked out on the first sort on that column and kept
+    // until the next write, so a sort is a primitive sort of those places; callers run it off the
+    // event thread.
+    public int[] sortIds(int[] assetIds, int column, boolean descending) {
+        lock.readLock().lock();
+        try {
+            int[] ranks = sortRanks(column);
+            // Place in the high half, index into assetIds in the low half
+            long[] keys = new long[assetIds.length];
+            for (int i = 0; i < assetIds.length; i++) {
+                int row = Arrays.binarySearch(ids, 0, size, assetIds[i]);
+                int rank = row < 0 ? size : descending ? size - 1 - ranks[row] : ranks[row];
+                keys[i] = (long) rank << 32 | i;
+            }
+            Arrays.sort(keys);
+            int[] sorted = new int[assetIds.length];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = assetIds[(int) keys[i]];
+            }
+            return sorted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Place of every row in the column's ascending order, ties broken by id. Runs under the read
+    // lock; two readers may both work it out, which does no harm.
+    private int[] sortRanks(int column) {
+        int[] ranks = sortRanks.get(column);
+        if (ranks != null) {
+            return ranks;
+        }
+        // A primitive key per row that orders as the column does; rows are in id order
+        int[] keys = switch (column) {
+            case 0 -> new int[size];
+            case 1 -> textRanks(names, size);
+            case 2 -> dictionaryRanks(categories, categoryCodes);
+            case 3 -> textRanks(descriptions, size);
+            case 4 -> costRanks();
+            case 5 -> Arrays.copyOf(purchaseDays, size);
+            case 6 -> dictionaryRanks(locations, locationCodes);
+            case 7 -> dictionaryRanks(statuses, statusCodes);
+            case 8 -> textRanks(serialNumbers, size);
+            case 9 -> dictionaryRanks(suppliers, supplierCodes);
+            case 10 -> Arrays.copyOf(warrantyDays, size); // NO_DATE is the smallest int
+            default -> throw new IllegalArgumentException("No asset column " + column);
+        };
+        long[] order = new long[size];
+        for (int row = 0; row < size; row++) {
+            order[row] = (long) keys[row] << 32 | row;
+        }
+        Arrays.sort(order);
+        ranks = new int[size];
+        for (int i = 0; i < size; i++) {
+            ranks[(int) order[i]] = i;
+        }
+        sortRanks.set(column, ranks);
+        return ranks;
+    }
+
+    // Writes move rows, so every kept order is worked out again when next needed
+    private void clearSortRanks() {
+        for (int column = 0; column < sortRanks.length(); column++) {
+            sortRanks.set(column, null);
+        }
+    }
+
+    // Dense rank of each of the first count values, ignoring case, with NULL as empty
+    private static int[] textRanks(String[] values, int count) {
+        String[] distinct = new String[count];
+        for (int i = 0; i < count; i++) {
+            distinct[i] = text(values[i]);
+        }
+        Arrays.sort(distinct, String.CASE_INSENSITIVE_ORDER);
+        int distinctCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinctCount == 0 || String.CASE_INSENSITIVE_ORDER.compare(distinct[distinctCount - 1], distinct[i]) != 0) {
+                distinct[distinctCount++] = distinct[i];
+            }
+        }
+        int[] ranks = new int[count];
+        for (int i = 0; i < count; i++) {
+            ranks[i] = Arrays.binarySearch(distinct, 0, distinctCount, text(values[i]), String.CASE_INSENSITIVE_ORDER);
+        }
+        return ranks;
+    }
+
+    // Ranks the dictionary's few values once, then looks each row's code up
+    private int[] dictionaryRanks(Dictionary dictionary, int[] codes) {
+        String[] values = new String[dictionary.size() + 1]; // The last one stands for NULL_CODE
+        for (int code = 0; code < dictionary.size(); code++) {
+            values[code] = dictionary.decode(code);
+        }
+        int[] codeRanks = textRanks(values, values.length);
+        int[] ranks = new int[size];
+        for (int row = 0; row < size; row++) {
+            ranks[row] = codeRanks[codes[row] == NULL_CODE ? dictionary.size() : codes[row]];
+        }
+        return ranks;
+    }
+
+    private int[] costRanks() {
+        long[] distinct = Arrays.copyOf(costCents, size);
+        Arrays.sort(distinct);
+        int distinctCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinctCount == 0 || distinct[distinctCount - 1] != distinct[i]) {
+                distinct[distinctCount++] = distinct[i];
+            }
+        }
+        int[] ranks = new int[size];
+        for (int row = 0; row < size; row++) {
+            ranks[row] = Arrays.binarySearch(distinct, 0, distinctCount, costCents[row]);
+        }
+        return ranks;
+    }
+
+    // Negative, zero or positive as the first asset sorts before, with or after the second in
+    // the order sortIds() gives; compares the two rows directly, so it holds right after a write
+    public int compareIds(int firstId, int secondId, int column, boolean descending) {
+        lock.readLock().lock();
+        try {
+            return compareRows(Arrays.binarySearch(ids, 0, size, firstId),
+                    Arrays.binarySearch(ids, 0, size, secondId), rowOrder(column, descending));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int compareRows(int first, int second, Comparator<Integer> byRow) {
+        if (first < 0 || second < 0) {
+            return Boolean.compare(first < 0, second < 0);
+        }
+        return byRow.compare(first, second);
+    }
+
+    private Comparator<Integer> rowOrder(int column, boolean descending) {
+        Comparator<Integer> byKey = switch (column) {
+            case 0 -> Comparator.comparingInt(row -> ids[row]);
+            case 1 -> Comparator.comparing(row -> text(names[row]), String.CASE_INSENSITIVE_ORDER);
+            case 2 -> Comparator.comparing(row -> text(categories.decode(categoryCodes[row])), String.CASE_INSENSITIVE_ORDER);
+            case 3 -> Comparator.comparing(row -> text(descriptions[row]), String.CASE_INSENSITIVE_ORDER);
+            case 4 -> Comparator.comparingLong(row -> costCents[row]);
+            case 5 -> Comparator.comparingInt(row -> purchaseDays[row]);
+            case 6 -> Comparator.comparing(row -> text(locations.decode(locationCodes[row])), String.CASE_INSENSITIVE_ORDER);
+            case 7 -> Comparator.comparing(row -> text(statuses.decode(statusCodes[row])), String.CASE_INSENSITIVE_ORDER);
+            case 8 -> Comparator.comparing(row -> text(serialNumbers[row]), String.CASE_INSENSITIVE_ORDER);
+            case 9 -> Comparator.comparing(row -> text(suppliers.decode(supplierCodes[row])), String.CASE_INSENSITIVE_ORDER);
+            case 10 -> Comparator.comparingInt(row -> warrantyDays[row]); // NO_DATE is the smallest int
+            default -> throw new IllegalArgumentException("No asset column " + column);
+        };
+        Comparator<Integer> order = byKey.thenComparingInt(row -> ids[row]);
+        return descending ? order.reversed() : order;
+    }
+
+    private static String text(String value) {
+        return value != null ? value : "";
+    }
+
+    // Copies of the columns DepreciationEngine needs, in id order, for the assets whose status is
+    // not the excluded one (null excludes none); depreciatingOnly skips assets with a zero rate
+    public DepreciationEngine.Basis depreciationBasis(String excludedStatus, boolean depreciatingOnly) {
+        lock.readLock().lock();
+        try {
+            int excluded = statuses.codeOf(excludedStatus);
+            int[] basisIds = new int[size];
+            String[] basisNames = new String[size];
+            String[] basisCategories = new String[size];
+            long[] basisCost = new long[size];
+            int[] basisPurchased = new int[size];
+            int[] basisRate = new int[size];
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                if (depreciatingOnly && rateBasisPoints[row] <= 0) continue;
+                if (excluded != NULL_CODE && statusCodes[row] == excluded) continue;
+                basisIds[count] = ids[row];
+                basisNames[count] = names[row];
+                basisCategories[count] = categories.decode(categoryCodes[row]);
+                basisCost[count] = costCents[row];
+                basisPurchased[count] = purchaseDays[row];
+                basisRate[count] = rateBasisPoints[row];
+                count++;
+            }
+            return new DepreciationEngine.Basis(count, basisIds, basisNames, basisCategories,
+                    basisCost, basisPurchased, basisRate);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rough heap footprint of the columns, for logging
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) ids.length * (4 * 9 + 8 + 3 * 4);
+            for (int row = 0; row < size; row++) {
+                bytes += stringBytes(names[row]) + stringBytes(descriptions[row]) + stringBytes(serialNumbers[row]);
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private FixedAssetsRegistry.Asset toAsset(int row) {
+        return new FixedAssetsRegistry.Asset(
+                ids[row],
+                names[row],
+                categories.decode(categoryCodes[row]),
+                descriptions[row],
+                costCents[row] / 100.0,
+                LocalDate.ofEpochDay(purchaseDays[row]),
+                locations.decode(locationCodes[row]),
+                statuses.decode(statusCodes[row]),
+                serialNumbers[row],
+                suppliers.decode(supplierCodes[row]),
+                warrantyDays[row] != NO_DATE ? LocalDate.ofEpochDay(warrantyDays[row]) : null,
+                rateBasisPoints[row] / 100.0
+        );
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(needed, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        costCents = Arrays.copyOf(costCents, capacity);
+        purchaseDays = Arrays.copyOf(purchaseDays, capacity);
+        warrantyDays = Arrays.copyOf(warrantyDays, capacity);
+        rateBasisPoints = Arrays.copyOf(rateBasisPoints, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        locationCodes = Arrays.copyOf(locationCodes, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+        supplierCodes = Arrays.copyOf(supplierCodes, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        serialNumbers = Arrays.copyOf(serialNumbers, capacity);
+    }
+
+    // Moves a run of rows within every column (used to open or close a gap)
+    private void shift(int from, int to, int length) {
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(costCents, from, costCents, to, length);
+        System.arraycopy(purchaseDays, from, purchaseDays, to, length);
+        System.arraycopy(warrantyDays, from, warrantyDays, to, length);
+        System.arraycopy(rateBasisPoints, from, rateBasisPoints, to, length);
+        System.arraycopy(categoryCodes, from, categoryCodes, to, length);
+        System.arraycopy(locationCodes, from, locationCodes, to, length);
+        System.arraycopy(statusCodes, from, statusCodes, to, length);
+        System.arraycopy(supplierCodes, from, supplierCodes, to, length);
+        System.arraycopy(names, from, names, to, length);
+        System.arraycopy(descriptions, from, descriptions, to, length);
+        System.arraycopy(serialNumbers, from, serialNumbers, to, length);
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value == null ? 0 : value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static int toEpochDay(Date date) {
+        return date == null ? NO_DATE : (int) date.toLocalDate().toEpochDay();
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    static boolean containsIgnoreCase(String text, String term) {
+        if (text == null) {
+            return false;
+        }
+        int max = text.length() - term.length();
+        for (int i = 0; i <= max; i++) {
+            if (text.regionMatches(true, i, term, 0, term.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,67 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+// RFC 4180 writer. A field is quoted only when it contains a comma, quote, CR or LF, with quotes
+// doubled inside; records end in CRLF. Null is written as an empty field. Buffering is left to
+// the Writer passed in, which the CsvWriter closes.
+class CsvWriter implements Closeable {
+    private final Writer out;
+    private boolean firstField = true;
+
+    CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void writeField(String value) throws IOException {
+        if (!firstField) {
+            out.write(',');
+        }
+        firstField = false;
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.write(value, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    public void writeRecord(String... values) throws IOException {
+        for (String value : values) {
+            writeField(value);
+        }
+        endRecord();
+    }
+
+    public void endRecord() throws IOException {
+        out.write("\r\n");
+        firstField = true;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,247 @@
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Book values computed in the application instead of in SQL. Works on primitive columns (cost in
+// cents, purchase date as epoch day, annual rate in basis points) split across a fork/join pool;
+// the per-row kernel allocates nothing. Values never go below zero; an asset is worth nothing
+// before its purchase date and its cost on it. Years are counted as days / 365, as the SQL
+// report did.
+class DepreciationEngine {
+    static final int PARALLEL_THRESHOLD = 8_192;
+    static final double DAYS_PER_YEAR = 365.0;
+    static final double DECLINING_BALANCE_FACTOR = 2.0;
+
+    enum Method {
+        // Cost times the annual rate, every year
+        STRAIGHT_LINE("Straight-line"),
+        // Twice the annual rate, applied to what is left of the book value
+        DECLINING_BALANCE("Double declining balance"),
+        // Over a useful life of 100 / rate years, weighted towards the early years
+        SUM_OF_YEARS_DIGITS("Sum-of-years' digits");
+
+        private final String label;
+
+        Method(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // The columns depreciation needs, one entry per asset. Name and category only label reports.
+    static class Basis {
+        final int size;
+        final int[] ids;
+        final String[] names;
+        final String[] categories;
+        final long[] costCents;
+        final int[] purchaseDays;
+        final int[] rateBasisPoints;
+
+        Basis(int size, int[] ids, String[] names, String[] categories, long[] costCents,
+              int[] purchaseDays, int[] rateBasisPoints) {
+            this.size = size;
+            this.ids = ids;
+            this.names = names;
+            this.categories = categories;
+            this.costCents = costCents;
+            this.purchaseDays = purchaseDays;
+            this.rateBasisPoints = rateBasisPoints;
+        }
+    }
+
+    // Reads a basis from rows of SqlStatements.DEPRECIATION_BASIS, for when the store is not loaded
+    static Basis readBasis(ResultSet rs) throws SQLException {
+        int capacity = 1024;
+        int size = 0;
+        int[] ids = new int[capacity];
+        String[] names = new String[capacity];
+        String[] categories = new String[capacity];
+        long[] costCents = new long[capacity];
+        int[] purchaseDays = new int[capacity];
+        int[] rateBasisPoints = new int[capacity];
+        while (rs.next()) {
+            if (size == capacity) {
+                capacity *= 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                categories = Arrays.copyOf(categories, capacity);
+                costCents = Arrays.copyOf(costCents, capacity);
+                purchaseDays = Arrays.copyOf(purchaseDays, capacity);
+                rateBasisPoints = Arrays.copyOf(rateBasisPoints, capacity);
+            }
+            ids[size] = rs.getInt(1);
+            names[size] = rs.getString(2);
+            categories[size] = rs.getString(3);
+            costCents[size] = rs.getBigDecimal(4).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+            purchaseDays[size] = (int) rs.getDate(5).toLocalDate().toEpochDay();
+            rateBasisPoints[size] = rs.getBigDecimal(6).movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValue();
+            size++;
+        }
+        return new Basis(size, ids, names, categories, costCents, purchaseDays, rateBasisPoints);
+    }
+
+    private final ForkJoinPool pool;
+
+    DepreciationEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    DepreciationEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Book value in cents of every asset of the basis on the given date
+    public long[] bookValues(Basis basis, Method method, LocalDate asOf) {
+        return schedule(basis, method, new int[]{(int) asOf.toEpochDay()})[0];
+    }
+
+    // Book values in cents on each of the given dates: result[period][row]
+    public long[][] schedule(Basis basis, Method method, int[] asOfDays) {
+        long[][] values = new long[asOfDays.length][basis.size];
+        pool.invoke(new ScheduleTask(basis, method, asOfDays, values, 0, basis.size));
+        return values;
+    }
+
+    // The same values asset-major in one array: result[row * asOfDays.length + period], so the
+    // dates of one asset are contiguous
+    public long[] scheduleByAsset(Basis basis, Method method, int[] asOfDays) {
+        long[] values = new long[basis.size * asOfDays.length];
+        pool.invoke(new AssetScheduleTask(basis, method, asOfDays, values, 0, basis.size));
+        return values;
+    }
+
+    // Sum of each period's book values over the given basis rows, in cents
+    public static long[] totals(long[][] schedule, int[] rows) {
+        long[] totals = new long[schedule.length];
+        for (int period = 0; period < schedule.length; period++) {
+            long sum = 0;
+            for (int row : rows) {
+                sum += schedule[period][row];
+            }
+            totals[period] = sum;
+        }
+        return totals;
+    }
+
+    private static class ScheduleTask extends RecursiveAction {
+        private final Basis basis;
+        private final Method method;
+        private final int[] asOfDays;
+        private final long[][] values;
+        private final int from;
+        private final int to;
+
+        ScheduleTask(Basis basis, Method method, int[] asOfDays, long[][] values, int from, int to) {
+            this.basis = basis;
+            this.method = method;
+            this.asOfDays = asOfDays;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScheduleTask(basis, method, asOfDays, values, from, middle),
+                        new ScheduleTask(basis, method, asOfDays, values, middle, to));
+                return;
+            }
+            long[] cost = basis.costCents;
+            int[] purchased = basis.purchaseDays;
+            int[] rate = basis.rateBasisPoints;
+            for (int period = 0; period < asOfDays.length; period++) {
+                long[] out = values[period];
+                int asOfDay = asOfDays[period];
+                for (int row = from; row < to; row++) {
+                    out[row] = bookValueCents(method, cost[row], purchased[row], rate[row], asOfDay);
+                }
+            }
+        }
+    }
+
+    private static class AssetScheduleTask extends RecursiveAction {
+        private final Basis basis;
+        private final Method method;
+        private final int[] asOfDays;
+        private final long[] values;
+        private final int from;
+        private final int to;
+
+        AssetScheduleTask(Basis basis, Method method, int[] asOfDays, long[] values, int from, int to) {
+            this.basis = basis;
+            this.method = method;
+            this.asOfDays = asOfDays;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new AssetScheduleTask(basis, method, asOfDays, values, from, middle),
+                        new AssetScheduleTask(basis, method, asOfDays, values, middle, to));
+                return;
+            }
+            int periods = asOfDays.length;
+            for (int row = from; row < to; row++) {
+                long cost = basis.costCents[row];
+                int purchased = basis.purchaseDays[row];
+                int rate = basis.rateBasisPoints[row];
+                int offset = row * periods;
+                for (int period = 0; period < periods; period++) {
+                    values[offset + period] = bookValueCents(method, cost, purchased, rate, asOfDays[period]);
+                }
+            }
+        }
+    }
+
+    // Book value in cents of one asset on the given day
+    static long bookValueCents(Method method, long costCents, int purchaseDay, int rateBasisPoints, int asOfDay) {
+        if (asOfDay < purchaseDay) {
+            return 0; // Not bought yet
+        }
+        if (asOfDay == purchaseDay || rateBasisPoints <= 0) {
+            return costCents;
+        }
+        double years = (asOfDay - purchaseDay) / DAYS_PER_YEAR;
+        double rate = rateBasisPoints / 10_000.0;
+        double remaining; // Fraction of cost left
+        switch (method) {
+            case STRAIGHT_LINE:
+                remaining = 1.0 - rate * years;
+                break;
+            case DECLINING_BALANCE:
+                double annual = Math.min(1.0, rate * DECLINING_BALANCE_FACTOR);
+                remaining = Math.pow(1.0 - annual, years);
+                break;
+            case SUM_OF_YEARS_DIGITS:
+                int life = (int) Math.ceil(1.0 / rate);
+                if (years >= life) {
+                    remaining = 0.0;
+                    break;
+                }
+                int whole = (int) years;
+                double digits = life * (life + 1) / 2.0;
+                // Full years 1..whole take life, life-1, ... digits; the current year its share
+                double used = whole * (double) life - whole * (whole - 1) / 2.0 + (years - whole) * (life - whole);
+                remaining = 1.0 - used / digits;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown method " + method);
+        }
+        return remaining <= 0.0 ? 0 : Math.round(costCents * remaining);
+    }
+}
@@ -0,0 +1,128 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// The depreciation report as table rows read straight from the engine's columns: one row per
+// asset bought by the as-of date, listed by category and name, with its book value on the as-of
+// date and on each projected date. Cells are boxed only when painted or saved.
+class DepreciationReportModel extends ReportTableModel {
+    private static final int NAME = 0;
+    private static final int CATEGORY = 1;
+    private static final int COST = 2;
+    private static final int BOOK_VALUE = 3;
+    private static final int RATE = 4;
+    private static final int PURCHASE_DATE = 5;
+    private static final int FIXED_COLUMNS = 6; // Projected book values follow
+
+    private final DepreciationEngine.Basis basis;
+    private final long[][] schedule;
+    private final int[] rows; // Source row -> basis row
+
+    DepreciationReportModel(DepreciationEngine.Basis basis, DepreciationEngine.Method method, LocalDate asOf,
+                            int[] days, long[][] schedule, long elapsedMillis) {
+        super(columnNames(days), formats(days.length), widths(days.length));
+        this.basis = basis;
+        this.schedule = schedule;
+
+        // Assets bought after the as-of date are left out
+        Integer[] included = new Integer[basis.size];
+        int count = 0;
+        for (int row = 0; row < basis.size; row++) {
+            if (basis.purchaseDays[row] <= days[0]) {
+                included[count++] = row;
+            }
+        }
+        Comparator<String> text = Comparator.nullsFirst(Comparator.naturalOrder());
+        Arrays.sort(included, 0, count, Comparator.<Integer, String>comparing(row -> basis.categories[row], text)
+                .thenComparing(row -> basis.names[row], text));
+        rows = new int[count];
+        long totalCost = 0;
+        for (int i = 0; i < count; i++) {
+            rows[i] = included[i];
+            totalCost += basis.costCents[included[i]];
+        }
+
+        setNotes("Method: " + method + ", as of " + asOf);
+        List<String> footer = new ArrayList<>();
+        footer.add(String.format("Total cost $%,.2f", totalCost / 100.0));
+        if (days.length > 1) {
+            long[] totals = DepreciationEngine.totals(schedule, rows); // Of the assets listed only
+            footer.add("Projected total book value:");
+            for (int period = 0; period < days.length; period++) {
+                footer.add(String.format("  %s  $%,.2f", LocalDate.ofEpochDay(days[period]), totals[period] / 100.0));
+            }
+        }
+        footer.add(String.format("%d assets listed x %d dates, computed in %d ms", rows.length, days.length, elapsedMillis));
+        setFooter(footer);
+    }
+
+    private static String[] columnNames(int[] days) {
+        String[] names = new String[FIXED_COLUMNS + days.length - 1];
+        String[] fixed = {"Asset Name", "Category", "Original", "Book Value", "Rate%", "Purchase Date"};
+        System.arraycopy(fixed, 0, names, 0, FIXED_COLUMNS);
+        for (int period = 1; period < days.length; period++) {
+            names[FIXED_COLUMNS + period - 1] = "Value " + LocalDate.ofEpochDay(days[period]);
+        }
+        return names;
+    }
+
+    private static Format[] formats(int periods) {
+        Format[] formats = new Format[FIXED_COLUMNS + periods - 1];
+        Arrays.fill(formats, Format.MONEY);
+        formats[NAME] = Format.TEXT;
+        formats[CATEGORY] = Format.TEXT;
+        formats[RATE] = Format.PERCENT;
+        formats[PURCHASE_DATE] = Format.DATE;
+        return formats;
+    }
+
+    private static int[] widths(int periods) {
+        int[] widths = new int[FIXED_COLUMNS + periods - 1];
+        Arrays.fill(widths, 16);
+        widths[NAME] = 25;
+        widths[CATEGORY] = 15;
+        widths[RATE] = 7;
+        widths[PURCHASE_DATE] = 13;
+        return widths;
+    }
+
+    @Override
+    protected int getSourceRowCount() {
+        return rows.length;
+    }
+
+    @Override
+    protected Object getSourceValue(int sourceRow, int column) {
+        int row = rows[sourceRow];
+        switch (column) {
+            case NAME: return basis.names[row];
+            case CATEGORY: return basis.categories[row];
+            case COST: return basis.costCents[row] / 100.0;
+            case BOOK_VALUE: return schedule[0][row] / 100.0;
+            case RATE: return basis.rateBasisPoints[row] / 100.0;
+            case PURCHASE_DATE: return LocalDate.ofEpochDay(basis.purchaseDays[row]);
+            default: return schedule[column - FIXED_COLUMNS + 1][row] / 100.0;
+        }
+    }
+
+    // Numbers and dates are compared on the primitive columns
+    @Override
+    protected int compareRows(int column, int a, int b) {
+        int x = rows[a];
+        int y = rows[b];
+        switch (column) {
+            case NAME:
+            case CATEGORY:
+                return super.compareRows(column, a, b);
+            case COST: return Long.compare(basis.costCents[x], basis.costCents[y]);
+            case BOOK_VALUE: return Long.compare(schedule[0][x], schedule[0][y]);
+            case RATE: return Integer.compare(basis.rateBasisPoints[x], basis.rateBasisPoints[y]);
+            case PURCHASE_DATE: return Integer.compare(basis.purchaseDays[x], basis.purchaseDays[y]);
+            default:
+                long[] values = schedule[column - FIXED_COLUMNS + 1];
+                return Long.compare(values[x], values[y]);
+        }
+    }
+}
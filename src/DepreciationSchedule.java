@@ -0,0 +1,247 @@
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Materialized month-end book values of every asset over the last few years, so reports read
+// stored values instead of recomputing depreciation. Values are kept in one long[] of cents,
+// asset-major: each asset has a slot, and the periods of a slot are contiguous, so one asset's
+// month-ends are a single range read. Running totals per period are kept alongside.
+// Like the search index it follows the columnar store: built in bulk with DepreciationEngine
+// after a full load, then patched for just the asset that changed on every upsert or removal.
+// Its old values come off the totals straight from its slot; only its new ones are computed.
+// When a new month starts the periods move on: isCurrent() turns false until rollOver() has
+// rebuilt the table, which callers run off the event thread.
+class DepreciationSchedule implements ColumnarAssetStore.ChangeListener {
+    private static final int NO_SLOT = -1;
+    // Disposed assets are off the books, as in the other reports
+    private static final String EXCLUDED_STATUS = "Disposed";
+
+    private final ColumnarAssetStore store;
+    private final DepreciationEngine engine;
+    private final DepreciationEngine.Method method;
+    private final int months;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] periodEndDays = new int[0];
+    private long[] values = new long[0]; // [slot * periods + period]
+    private long[] totals = new long[0];
+    private int[] slotIds = new int[0]; // NO_SLOT when the slot is free
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    private int slotCount;
+    private long modifications;
+    private volatile boolean ready;
+
+    DepreciationSchedule(ColumnarAssetStore store, DepreciationEngine engine, DepreciationEngine.Method method, int years) {
+        this.store = store;
+        this.engine = engine;
+        this.method = method;
+        this.months = years * 12;
+        store.addChangeListener(this);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public DepreciationEngine.Method getMethod() {
+        return method;
+    }
+
+    // Whether the periods end with the current month; if not, rollOver() before reading
+    public boolean isCurrent() {
+        int[] ends = currentPeriodEnds();
+        lock.readLock().lock();
+        try {
+            return ready && Arrays.equals(ends, periodEndDays);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Month ends covered, oldest first; the last is the end of the current month when current
+    public LocalDate[] getPeriodEnds() {
+        lock.readLock().lock();
+        try {
+            LocalDate[] ends = new LocalDate[periodEndDays.length];
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = LocalDate.ofEpochDay(periodEndDays[i]);
+            }
+            return ends;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Total book value in cents at each period end
+    public long[] getPeriodTotals() {
+        lock.readLock().lock();
+        try {
+            return totals.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Book value in cents of one asset at each period end, or null if it is not on the books
+    public long[] getBookValues(int assetId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(assetId);
+            if (slot == null) {
+                return null;
+            }
+            int periods = periodEndDays.length;
+            return Arrays.copyOfRange(values, slot * periods, (slot + 1) * periods);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void reloaded(ColumnarAssetStore source) {
+        // Runs under the store's read lock, so no change can slip in while building
+        rebuild(source.depreciationBasis(EXCLUDED_STATUS, false), currentPeriodEnds(), -1);
+    }
+
+    @Override
+    public void changed(FixedAssetsRegistry.Asset before, FixedAssetsRegistry.Asset after) {
+        lock.writeLock().lock();
+        try {
+            modifications++;
+            if (!ready) {
+                return; // The bulk build that follows the load will include it
+            }
+            if (before != null) {
+                release(before.getId());
+            }
+            if (after != null && !EXCLUDED_STATUS.equals(after.getStatus())) {
+                fill(allocate(after.getId()), after);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Takes the asset's stored values off the totals and frees its slot
+    private void release(int assetId) {
+        Integer slot = slots.remove(assetId);
+        if (slot == null) {
+            return;
+        }
+        int periods = periodEndDays.length;
+        int offset = slot * periods;
+        for (int period = 0; period < periods; period++) {
+            totals[period] -= values[offset + period];
+        }
+        slotIds[slot] = NO_SLOT;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeCount * 2));
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private int allocate(int assetId) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == slotIds.length) {
+                int capacity = Math.max(16, slotCount + (slotCount >> 1));
+                slotIds = Arrays.copyOf(slotIds, capacity);
+                values = Arrays.copyOf(values, capacity * periodEndDays.length);
+            }
+            slot = slotCount++;
+        }
+        slotIds[slot] = assetId;
+        slots.put(assetId, slot);
+        return slot;
+    }
+
+    // Computes the asset's book values into its slot, the same values the bulk build computes
+    // from the store's columns, and adds them to the totals
+    private void fill(int slot, FixedAssetsRegistry.Asset asset) {
+        long costCents = Math.round(asset.getCost() * 100);
+        int purchaseDay = (int) asset.getPurchaseDate().toEpochDay();
+        int rate = (int) Math.round(asset.getDepreciationRate() * 100);
+        int periods = periodEndDays.length;
+        int offset = slot * periods;
+        for (int period = 0; period < periods; period++) {
+            long value = DepreciationEngine.bookValueCents(method, costCents, purchaseDay, rate, periodEndDays[period]);
+            values[offset + period] = value;
+            totals[period] += value;
+        }
+    }
+
+    // Returns false, keeping the current table, if the schedule was modified after
+    // expectedModifications was read (pass -1 to swap unconditionally).
+    private boolean rebuild(DepreciationEngine.Basis basis, int[] ends, long expectedModifications) {
+        long[] builtValues = engine.scheduleByAsset(basis, method, ends);
+        long[] builtTotals = new long[ends.length];
+        for (int row = 0; row < basis.size; row++) {
+            int offset = row * ends.length;
+            for (int period = 0; period < ends.length; period++) {
+                builtTotals[period] += builtValues[offset + period];
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (expectedModifications >= 0 && modifications != expectedModifications) {
+                return false;
+            }
+            periodEndDays = ends;
+            values = builtValues;
+            totals = builtTotals;
+            slotIds = Arrays.copyOf(basis.ids, basis.size);
+            slotCount = basis.size;
+            freeCount = 0;
+            slots.clear();
+            for (int slot = 0; slot < slotCount; slot++) {
+                slots.put(slotIds[slot], slot);
+            }
+            ready = true;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves the periods on once a new month has started, computing every asset's values again;
+    // returns whether the schedule is current afterwards. The basis is copied from the store
+    // without holding our lock (the store calls changed() while holding its own), so the build
+    // is only kept if nothing changed meanwhile.
+    public boolean rollOver() {
+        int[] ends = currentPeriodEnds();
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long seen;
+            lock.readLock().lock();
+            try {
+                if (!ready || Arrays.equals(ends, periodEndDays)) {
+                    return ready;
+                }
+                seen = modifications;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if (rebuild(store.depreciationBasis(EXCLUDED_STATUS, false), ends, seen)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] currentPeriodEnds() {
+        YearMonth last = YearMonth.now();
+        int[] ends = new int[months];
+        for (int i = 0; i < months; i++) {
+            ends[i] = (int) last.minusMonths(months - 1 - i).atEndOfMonth().toEpochDay();
+        }
+        return ends;
+    }
+}
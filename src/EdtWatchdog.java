@@ -0,0 +1,222 @@
+import javax.management.StandardMBean;
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Tells which action froze the window. A daemon thread posts a heartbeat to the Event Dispatch
+// Thread every HEARTBEAT_MILLIS and times how long it waits to run; the waits go into a latency
+// histogram, published over JMX as FixedAssetsRegistry:type=EventDispatch. When a heartbeat
+// waits past the stall threshold the EDT's stack is captured, with the application methods on it
+// (e.g. FixedAssetsRegistry.filterTable) and the lock it is waiting for and that lock owner's
+// stack, and appended to a diagnostics file rolled at MAX_LOG_BYTES. A second line records how
+// long the stall lasted once the EDT gets through.
+class EdtWatchdog {
+    static final long HEARTBEAT_MILLIS = 200;
+    static final long DEFAULT_STALL_MILLIS = 2_000;
+    static final long MAX_LOG_BYTES = 1 << 20;
+    static final int LOG_FILES = 3; // The current file and two rolled ones (.1, .2)
+    // Stack frames written per thread; deep Swing stacks are cut after this many
+    static final int MAX_FRAMES = 60;
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final Path file;
+    private final long stallNanos;
+    // Time from posting a heartbeat to running it; a stall counts as an error
+    private final QueryMetrics.Operation latency = new QueryMetrics.Operation("Event dispatch");
+    private volatile Thread eventThread;
+    private volatile boolean running;
+    private Thread watcher;
+    private int stalls;
+
+    EdtWatchdog(Path file, long stallMillis) {
+        this.file = file;
+        this.stallNanos = stallMillis * 1_000_000;
+    }
+
+    public void start() {
+        if (stallNanos <= 0 || running) {
+            return;
+        }
+        running = true;
+        QueryMetrics.register("type=EventDispatch",
+                new StandardMBean(latency, QueryMetrics.OperationMBean.class, false));
+        watcher = Thread.ofPlatform().daemon().name("edt-watchdog").start(this::watch);
+    }
+
+    // Writes the histogram when the session had stalls, so the file alone explains them
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        watcher.interrupt();
+        synchronized (this) {
+            if (stalls > 0) {
+                append(LocalDateTime.now().format(TIME) + " Session ended after " + stalls + " stall(s); "
+                        + describeLatency() + "\n\n");
+            }
+        }
+    }
+
+    private void watch() {
+        try {
+            while (running) {
+                long posted = System.nanoTime();
+                CountDownLatch dispatched = new CountDownLatch(1);
+                EventQueue.invokeLater(() -> {
+                    eventThread = Thread.currentThread();
+                    long waited = System.nanoTime() - posted;
+                    latency.record(waited, 0, waited >= stallNanos);
+                    dispatched.countDown();
+                });
+                if (!dispatched.await(stallNanos, TimeUnit.NANOSECONDS)) {
+                    reportStall();
+                    dispatched.await();
+                    reportRecovery((System.nanoTime() - posted) / 1_000_000);
+                }
+                Thread.sleep(HEARTBEAT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    private void reportStall() {
+        Thread thread = eventThread;
+        long millis = stallNanos / 1_000_000;
+        StringBuilder report = new StringBuilder(8192);
+        report.append(LocalDateTime.now().format(TIME))
+                .append(" Event dispatch thread blocked for over ").append(millis).append(" ms\n");
+        if (thread == null) {
+            // Blocked before the first heartbeat ran, e.g. while the window was being built
+            thread = findEventThread();
+        }
+        ThreadInfo info = thread == null ? null
+                : ManagementFactory.getThreadMXBean().getThreadInfo(new long[]{thread.threadId()}, true, true)[0];
+        String action = "unknown";
+        if (info == null) {
+            report.append("  Stack unavailable\n");
+        } else {
+            action = describeAction(info.getStackTrace());
+            report.append("  Action: ").append(action).append('\n');
+            appendThread(report, info);
+            if (info.getLockOwnerId() >= 0) {
+                ThreadInfo owner = ManagementFactory.getThreadMXBean()
+                        .getThreadInfo(new long[]{info.getLockOwnerId()}, true, true)[0];
+                if (owner != null) {
+                    report.append("  Lock held by:\n");
+                    appendThread(report, owner);
+                }
+            }
+        }
+        report.append("  ").append(describeLatency()).append('\n');
+
+        synchronized (this) {
+            stalls++;
+            append(report.toString());
+        }
+        System.err.println("Event dispatch thread blocked for over " + millis + " ms in " + action
+                + "; details in " + file);
+    }
+
+    private synchronized void reportRecovery(long millis) {
+        append(LocalDateTime.now().format(TIME) + " Event dispatch thread responding again after "
+                + millis + " ms\n\n");
+    }
+
+    private String describeLatency() {
+        return String.format("Dispatch latency: n=%d stalls=%d p50=%.0fms p95=%.0fms p99=%.0fms max=%.0fms [%s]",
+                latency.getCount(), latency.getErrorCount(), latency.getP50Millis(), latency.getP95Millis(),
+                latency.getP99Millis(), latency.getMaxMillis(), latency.getHistogram());
+    }
+
+    // The application's own methods on the stack, outermost first, e.g.
+    // "FixedAssetsRegistry.filterTable > ColumnarAssetStore.filterIds". Its classes are the ones
+    // in the default package; lambdas are left out, as the method they call says the same.
+    static String describeAction(StackTraceElement[] stack) {
+        List<String> methods = new ArrayList<>();
+        for (int i = stack.length - 1; i >= 0; i--) {
+            StackTraceElement frame = stack[i];
+            String className = frame.getClassName();
+            if (className.indexOf('.') >= 0 || className.contains("$$Lambda")
+                    || frame.getMethodName().startsWith("lambda$")) {
+                continue;
+            }
+            String method = className.replace('$', '.') + "." + frame.getMethodName();
+            if (methods.isEmpty() || !methods.get(methods.size() - 1).equals(method)) {
+                methods.add(method);
+            }
+        }
+        return methods.isEmpty() ? "Swing (no application code on the stack)" : String.join(" > ", methods);
+    }
+
+    private static void appendThread(StringBuilder report, ThreadInfo info) {
+        report.append("  \"").append(info.getThreadName()).append("\" ").append(info.getThreadState());
+        LockInfo lock = info.getLockInfo();
+        if (lock != null) {
+            report.append(" on ").append(lock);
+            if (info.getLockOwnerName() != null) {
+                report.append(" owned by \"").append(info.getLockOwnerName()).append('"');
+            }
+        }
+        report.append('\n');
+        StackTraceElement[] stack = info.getStackTrace();
+        for (int i = 0; i < Math.min(stack.length, MAX_FRAMES); i++) {
+            report.append("    at ").append(stack[i]).append('\n');
+        }
+        if (stack.length > MAX_FRAMES) {
+            report.append("    ... ").append(stack.length - MAX_FRAMES).append(" more\n");
+        }
+    }
+
+    private static Thread findEventThread() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("AWT-EventQueue")) {
+                return thread;
+            }
+        }
+        return null;
+    }
+
+    // Rolls the file first when it is full; a diagnostics file that cannot be written is only
+    // worth a console line
+    private void append(String text) {
+        try {
+            Files.createDirectories(file.getParent());
+            if (Files.exists(file) && Files.size(file) >= MAX_LOG_BYTES) {
+                for (int i = LOG_FILES - 1; i > 0; i--) {
+                    Path older = rolled(i - 1);
+                    if (Files.exists(older)) {
+                        Files.move(older, rolled(i), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            }
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(text);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write " + file + ": " + e.getMessage());
+        }
+    }
+
+    // 0 is the current file
+    private Path rolled(int index) {
+        return index == 0 ? file : file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
@@ -1,31 +1,105 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableColumnModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Vector;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FixedAssetsRegistry {
     private JFrame frame;
     private JTable table;
-    private DefaultTableModel tableModel;
-    private Connection connection;
+    private PagedAssetTableModel tableModel;
+    private ConnectionPool dataSource;
     private JTextField searchField;
+    private Timer searchDebounce;
+    private LastSearch lastSearch;
     private JComboBox<String> filterCategoryCombo;
     private JComboBox<String> filterStatusCombo;
     private JLabel totalAssetsLabel;
     private JLabel totalValueLabel;
 
+    // The filter behind the rows on screen and their totals, kept so single-row writes can be
+    // applied in place. Null search, category or status means that filter is not applied.
+    private String shownSearch;
+    private String shownCategory;
+    private String shownStatus;
+    private boolean shownFiltered;
+    private AssetTotals shownTotals = new AssetTotals(0, 0.0);
+    private JProgressBar progressBar;
+    private JButton cancelTaskButton;
+    private QueryExecutor.QueryHandle cancellableTask;
+    private QueryExecutor queryExecutor;
+    private ReferenceDataCache referenceData;
+    private final ColumnarAssetStore assetStore = new ColumnarAssetStore();
+    private final AssetSearchIndex searchIndex = new AssetSearchIndex(assetStore);
+    private final AssetAggregates aggregates = new AssetAggregates(assetStore);
+    private final AssetChangeFeed changeFeed = new AssetChangeFeed();
+    private final DepreciationEngine depreciationEngine = new DepreciationEngine();
+    private final DepreciationSchedule depreciationSchedule = new DepreciationSchedule(
+            assetStore, depreciationEngine, DepreciationEngine.Method.STRAIGHT_LINE, SCHEDULE_YEARS);
+    private Timer refreshPoll;
+    private Timer metricsLog;
+    private final QueryMetrics queryMetrics = new QueryMetrics(SLOW_QUERY_MILLIS);
+    private final EdtWatchdog edtWatchdog = new EdtWatchdog(EDT_STALL_FILE, EDT_STALL_MILLIS);
+    private boolean syncing;
+    private final AssetSnapshot snapshot = new AssetSnapshot(SNAPSHOT_FILE);
+    private AssetApiServer apiServer;
+    private final AtomicBoolean savingSnapshot = new AtomicBoolean();
+    private boolean tableFromSnapshot;
+    private boolean offline;
+    private boolean exiting;
+    private final List<AbstractButton> writeActions = new ArrayList<>();
+
     // Database configuration
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/asset_registry_db";
-    private static final String DB_USER = "username"; // Change as needed
-    private static final String DB_PASSWORD = "password"; // Change as needed
+    // useServerPrepStmts makes the driver prepare on the server, so cached statements skip parsing;
+    // rewriteBatchedStatements sends a batch of inserts as multi-row INSERTs; connectTimeout bounds
+    // how long an unreachable server keeps the window waiting to go offline
+    static final String DB_URL = "jdbc:mysql://localhost:3306/asset_registry_db?useServerPrepStmts=true" +
+            "&rewriteBatchedStatements=true&connectTimeout=5000";
+    static final String DB_USER = "username"; // Change as needed
+    static final String DB_PASSWORD = "password"; // Change as needed
+    private static final int DB_POOL_SIZE = 8;
+    private static final long DB_BORROW_TIMEOUT_MILLIS = 10_000;
+    private static final long REFERENCE_DATA_TTL_MILLIS = 10 * 60_000;
+    private static final int SEARCH_DEBOUNCE_MILLIS = 250;
+    static final int REFRESH_POLL_MILLIS = 30_000;
+    private static final int METRICS_LOG_MILLIS = 60_000;
+    // Statements slower than this are logged with their parameters, e.g. -Dregistry.slowQueryMillis=200
+    private static final long SLOW_QUERY_MILLIS =
+            Long.getLong("registry.slowQueryMillis", QueryMetrics.DEFAULT_SLOW_QUERY_MILLIS);
+    // The window counts as frozen when it has not handled events for this long; 0 turns the
+    // watchdog off, e.g. -Dregistry.edtStallMillis=0
+    private static final long EDT_STALL_MILLIS =
+            Long.getLong("registry.edtStallMillis", EdtWatchdog.DEFAULT_STALL_MILLIS);
+    // Beyond this many changes in one sync, re-running the filter is cheaper than patching rows
+    private static final int MAX_CHANGES_APPLIED_IN_PLACE = 500;
+    private static final int IMPORT_COMMIT_CHUNK_SIZE = 5_000;
+    // Month-ends kept in the materialized depreciation schedule
+    private static final int SCHEDULE_YEARS = 5;
+    private static final String TITLE = "Fixed Assets Registry - Database Edition";
+    // Set to a port, e.g. -Dregistry.api.port=8085, to serve the read-only HTTP API from this window
+    private static final String API_PORT_PROPERTY = "registry.api.port";
+    private static final Path SNAPSHOT_FILE =
+            Paths.get(System.getProperty("user.home"), ".fixed-assets-registry", "assets.snapshot");
+    private static final Path EDT_STALL_FILE = SNAPSHOT_FILE.resolveSibling("edt-stalls.log");
+    // Older snapshots are still shown, but reconciled with a full load rather than from their
+    // watermark; keep this well inside the tombstone retention (see README)
+    private static final long SNAPSHOT_MAX_AGE_MILLIS = 7L * 24 * 60 * 60_000;
 
     // Asset class to represent fixed assets
     static class Asset {
@@ -73,25 +147,88 @@ public class FixedAssetsRegistry {
         public LocalDate getWarrantyExpiry() { return warrantyExpiry; }
         public double getDepreciationRate() { return depreciationRate; }
 
+        // The rules the asset dialog enforces, shared with CSV import; null when the asset is valid
+        public String validationError() {
+            if (name == null || name.isEmpty() || category == null || location == null || status == null) {
+                return "Please fill in all required fields (marked with *).";
+            }
+            if (cost < 0) {
+                return "Cost must be a positive number.";
+            }
+            if (depreciationRate < 0 || depreciationRate > 100) {
+                return "Depreciation rate must be between 0 and 100.";
+            }
+            return null;
+        }
+
+        // Typed values in PagedAssetTableModel column order; the table's renderer formats the
+        // cost and dates only for the cells it paints
         public Object[] toTableRow() {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
             return new Object[]{
-                    id, name, category, description,
-                    String.format("$%.2f", cost),
-                    purchaseDate.format(formatter),
+                    id, name, category, description, cost, purchaseDate,
                     location, status, serialNumber, supplier,
-                    warrantyExpiry != null ? warrantyExpiry.format(formatter) : "N/A"
+                    warrantyExpiry != null ? warrantyExpiry : PagedAssetTableModel.NO_WARRANTY
             };
         }
     }
 
+    // Row count and summed cost of a query streamed into the table
+    static class AssetTotals {
+        final int count;
+        final double value;
+
+        AssetTotals(int count, double value) {
+            this.count = count;
+            this.value = value;
+        }
+    }
+
+    // The last search answered in memory, so a longer term can narrow its ids instead of searching again
+    static class LastSearch {
+        final String term;
+        final String category;
+        final String status;
+        final int[] ids;
+
+        LastSearch(String term, String category, String status, int[] ids) {
+            this.term = term;
+            this.category = category;
+            this.status = status;
+            this.ids = ids;
+        }
+
+        // True if every match of the new term is among this search's ids
+        boolean covers(String newTerm, String newCategory, String newStatus) {
+            return Objects.equals(category, newCategory) && Objects.equals(status, newStatus)
+                    && ColumnarAssetStore.containsIgnoreCase(newTerm, term);
+        }
+    }
+
     public FixedAssetsRegistry() {
+        // Started first, so a slow startup on the event thread is caught too
+        edtWatchdog.start();
         try {
             // Load MySQL JDBC driver
             Class.forName("com.mysql.cj.jdbc.Driver");
             initializeDatabase();
+            boolean restored = restoreSnapshot();
+            // The window shows at once, from the snapshot when there is one, and stays read-only
+            // until the database has answered
             initializeGUI();
-            loadAssets();
+            if (restored) {
+                loadAssets();
+            }
+            setOffline(true);
+            frame.setTitle(TITLE + " (connecting...)");
+            connect(true);
+            // Pick up other users' edits in the background
+            refreshPoll = new Timer(REFRESH_POLL_MILLIS, e -> {
+                if (!offline) refreshChanges(false);
+            });
+            refreshPoll.start();
+            metricsLog = new Timer(METRICS_LOG_MILLIS, e -> logMetrics());
+            metricsLog.start();
+            startApiServer();
         } catch (Exception e) {
             JOptionPane.showMessageDialog(null,
                     "Database connection failed: " + e.getMessage(),
@@ -100,14 +237,166 @@ public class FixedAssetsRegistry {
         }
     }
 
+    // Serves the store, as kept up to date by the refresh poll, to other tools when a port is set
+    private void startApiServer() {
+        String port = System.getProperty(API_PORT_PROPERTY);
+        if (port == null) {
+            return;
+        }
+        try {
+            apiServer = new AssetApiServer(assetStore, searchIndex, aggregates);
+            apiServer.start(new java.net.InetSocketAddress(Integer.parseInt(port)));
+            System.out.println("Serving the asset API on port " + apiServer.getPort());
+        } catch (IOException | NumberFormatException e) {
+            apiServer = null;
+            System.err.println("Could not start the asset API on port " + port + ": " + e.getMessage());
+        }
+    }
+
     private void initializeDatabase() throws SQLException {
-        connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        System.out.println("Connected to MySQL database successfully!");
+        dataSource = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, DB_POOL_SIZE, DB_BORROW_TIMEOUT_MILLIS,
+                queryMetrics);
+        queryMetrics.register();
+        referenceData = new ReferenceDataCache(dataSource, REFERENCE_DATA_TTL_MILLIS);
+        referenceData.addChangeListener(() -> SwingUtilities.invokeLater(this::refreshFilterModels));
+        queryExecutor = new QueryExecutor(dataSource, new QueryExecutor.ProgressListener() {
+            @Override
+            public void queryStarted(String description) {
+                progressBar.setVisible(true);
+                progressBar.setIndeterminate(true);
+                progressBar.setString(description + "...");
+            }
+
+            @Override
+            public void queryProgress(String description, int rows) {
+                progressBar.setString(description + ": " + rows + " rows");
+            }
+
+            @Override
+            public void queryFinished(String description) {
+                if (!queryExecutor.isBusy() && !exiting) { // Saving the snapshot on exit keeps it shown
+                    progressBar.setIndeterminate(false);
+                    progressBar.setVisible(false);
+                }
+            }
+        }, queryMetrics);
+    }
+
+    // Logs the query figures, and the pool's, when anything ran since the last line
+    private void logMetrics() {
+        String line = queryMetrics.logLine();
+        if (line != null) {
+            System.out.println(line);
+            System.out.println("Connection pool: " + dataSource.getStatistics());
+        }
+    }
+
+    // Shows the local snapshot, if there is one, before the database has answered
+    private boolean restoreSnapshot() {
+        if (!snapshot.exists()) {
+            return false;
+        }
+        try {
+            snapshot.restore(assetStore);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable snapshot " + SNAPSHOT_FILE + ": " + e.getMessage());
+            return false;
+        }
+        referenceData.restore(snapshot.getCategories(), snapshot.getLocations(), snapshot.getStatuses());
+        if (System.currentTimeMillis() - snapshot.getWatermark().getTime() < SNAPSHOT_MAX_AGE_MILLIS) {
+            changeFeed.resume(snapshot.getWatermark());
+        }
+        tableFromSnapshot = true;
+        System.out.println("Restored " + assetStore.size() + " assets from the local snapshot of " +
+                new java.util.Date(snapshot.getSavedAt()));
+        return true;
+    }
+
+    // Writes the local snapshot; skipped until the store is loaded and change tracking has started
+    private void saveSnapshot() {
+        synchronized (snapshot) {
+            // Read the watermark before the store, so the snapshot never claims changes it lacks
+            Timestamp watermark = changeFeed.getWatermark();
+            if (!assetStore.isLoaded() || watermark == null) {
+                return;
+            }
+            try {
+                snapshot.save(assetStore, referenceData.getCategories(), referenceData.getLocations(),
+                        referenceData.getStatuses(), watermark);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void saveSnapshotInBackground() {
+        if (!savingSnapshot.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("snapshot-writer").start(() -> {
+            try {
+                saveSnapshot();
+            } finally {
+                savingSnapshot.set(false);
+            }
+        });
+    }
+
+    // Brings the store up to date: from the watermark when there is one, else with a full load
+    private void reconcile() {
+        if (assetStore.isLoaded() && changeFeed.isStarted()) {
+            refreshChanges(false);
+        } else {
+            loadAssetStore();
+        }
+    }
+
+    // Offline the window shows the snapshot read-only; everything that writes is disabled
+    private void setOffline(boolean offline) {
+        this.offline = offline;
+        referenceData.setConnected(!offline);
+        for (AbstractButton action : writeActions) {
+            action.setEnabled(!offline);
+        }
+        frame.setTitle(offline ? TITLE + " (offline, read-only snapshot)" : TITLE);
+    }
+
+    // Brings the schema up to what this version's SQL expects and loads the lookup lists, in the
+    // background, then the table and the store. Failing at startup with a snapshot shown only
+    // leaves the window offline; otherwise the user is told, and Refresh tries again.
+    private void connect(boolean startup) {
+        queryExecutor.submit("Connecting", ctx -> {
+            SchemaMigrator.migrate(ctx.getConnection());
+            referenceData.load();
+            return true;
+        }, connected -> {
+            System.out.println("Connected to MySQL database successfully!");
+            setOffline(false);
+            if (!assetStore.isLoaded()) {
+                loadAssets(); // Paged from MySQL while the store loads
+            }
+            reconcile();
+        }, e -> {
+            setOffline(true);
+            if (startup && assetStore.isLoaded()) {
+                e.printStackTrace(); // The snapshot is enough to browse the registry, read-only
+            } else if (startup) {
+                showDatabaseError("Database connection failed: ", e);
+            } else {
+                showDatabaseError("The database is still unreachable: ", e);
+            }
+        });
     }
 
     private void initializeGUI() {
-        frame = new JFrame("Fixed Assets Registry - Database Edition");
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame = new JFrame(TITLE);
+        frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                exitApplication();
+            }
+        });
         frame.setSize(1400, 700);
         frame.setLocationRelativeTo(null);
 
@@ -117,20 +406,23 @@ public class FixedAssetsRegistry {
         // Create search and filter panel
         JPanel searchPanel = createSearchPanel();
 
-        // Create table
-        String[] columnNames = {"ID", "Name", "Category", "Description", "Cost",
-                "Purchase Date", "Location", "Status", "Serial No.", "Supplier", "Warranty"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        // Create table; rows are fetched page by page as they scroll into view
+        tableModel = new PagedAssetTableModel(queryExecutor, assetStore);
 
         table = new JTable(tableModel);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.getTableHeader().setReorderingAllowed(false);
-        table.setAutoCreateRowSorter(true);
+        table.setDefaultRenderer(Object.class, new PagedAssetTableModel.CellRenderer());
+        // Clicking a column header sorts on it in the database (see PagedAssetTableModel)
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    sortTable(table.convertColumnIndexToModel(column));
+                }
+            }
+        });
 
         // Set column widths
         int[] columnWidths = {50, 120, 100, 180, 80, 100, 120, 80, 100, 120, 100};
@@ -159,12 +451,16 @@ public class FixedAssetsRegistry {
 
         // File menu
         JMenu fileMenu = new JMenu("File");
+        JMenuItem importItem = new JMenuItem("Import from CSV");
         JMenuItem exportItem = new JMenuItem("Export to CSV");
         JMenuItem exitItem = new JMenuItem("Exit");
 
+        importItem.addActionListener(_ -> importFromCSV());
         exportItem.addActionListener(_ -> exportToCSV());
-        exitItem.addActionListener(e -> System.exit(0));
+        exitItem.addActionListener(e -> exitApplication());
 
+        writeActions.add(importItem);
+        fileMenu.add(importItem);
         fileMenu.add(exportItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
@@ -173,12 +469,15 @@ public class FixedAssetsRegistry {
         JMenu reportsMenu = new JMenu("Reports");
         JMenuItem summaryItem = new JMenuItem("Asset Summary");
         JMenuItem depreciationItem = new JMenuItem("Depreciation Report");
+        JMenuItem monthEndItem = new JMenuItem("Month-End Book Values");
 
         summaryItem.addActionListener(e -> showAssetSummary());
         depreciationItem.addActionListener(e -> showDepreciationReport());
+        monthEndItem.addActionListener(e -> showMonthEndBookValues());
 
         reportsMenu.add(summaryItem);
         reportsMenu.add(depreciationItem);
+        reportsMenu.add(monthEndItem);
 
         menuBar.add(fileMenu);
         menuBar.add(reportsMenu);
@@ -194,6 +493,19 @@ public class FixedAssetsRegistry {
         panel.add(new JLabel("Search:"));
         searchField = new JTextField(15);
         searchField.addActionListener(e -> filterTable());
+        // Search as you type, once typing pauses
+        searchDebounce = new Timer(SEARCH_DEBOUNCE_MILLIS, e -> filterTable());
+        searchDebounce.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { searchDebounce.restart(); }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) { searchDebounce.restart(); }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) { searchDebounce.restart(); }
+        });
         panel.add(searchField);
 
         JButton searchButton = new JButton("Search");
@@ -202,17 +514,15 @@ public class FixedAssetsRegistry {
 
         // Category filter
         panel.add(new JLabel("Category:"));
-        filterCategoryCombo = new JComboBox<>();
-        filterCategoryCombo.addItem("All Categories");
-        loadCategories(filterCategoryCombo);
+        filterCategoryCombo = new JComboBox<>(
+                new ReferenceDataCache.ComboModel("All Categories", referenceData.getCategories()));
         filterCategoryCombo.addActionListener(e -> filterTable());
         panel.add(filterCategoryCombo);
 
         // Status filter
         panel.add(new JLabel("Status:"));
-        filterStatusCombo = new JComboBox<>();
-        filterStatusCombo.addItem("All Statuses");
-        loadStatuses(filterStatusCombo);
+        filterStatusCombo = new JComboBox<>(
+                new ReferenceDataCache.ComboModel("All Statuses", referenceData.getStatuses()));
         filterStatusCombo.addActionListener(e -> filterTable());
         panel.add(filterStatusCombo);
 
@@ -235,8 +545,19 @@ public class FixedAssetsRegistry {
         addButton.addActionListener(e -> showAddAssetDialog());
         editButton.addActionListener(e -> showEditAssetDialog());
         deleteButton.addActionListener(e -> deleteSelectedAsset());
-        refreshButton.addActionListener(e -> loadAssets());
+        refreshButton.addActionListener(e -> {
+            if (offline) {
+                connect(false);
+                return;
+            }
+            referenceData.invalidate();
+            refreshChanges(true);
+        });
         duplicateButton.addActionListener(e -> duplicateSelectedAsset());
+        writeActions.add(addButton);
+        writeActions.add(editButton);
+        writeActions.add(deleteButton);
+        writeActions.add(duplicateButton);
 
         panel.add(addButton);
         panel.add(editButton);
@@ -253,229 +574,309 @@ public class FixedAssetsRegistry {
 
         totalAssetsLabel = new JLabel("Total Assets: 0");
         totalValueLabel = new JLabel("Total Value: $0.00");
-
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        cancelTaskButton = new JButton("Cancel");
+        cancelTaskButton.setVisible(false);
+        cancelTaskButton.addActionListener(e -> {
+            if (cancellableTask != null) {
+                cancellableTask.cancel();
+                // Cancelled jobs report nothing back, so refresh in case an import committed some rows
+                refreshChanges(false);
+            }
+            setCancellableTask(null);
+        });
         panel.add(totalAssetsLabel);
         panel.add(Box.createRigidArea(new Dimension(20, 0)));
         panel.add(totalValueLabel);
+        panel.add(Box.createRigidArea(new Dimension(20, 0)));
+        panel.add(progressBar);
+        panel.add(cancelTaskButton);
 
         return panel;
     }
 
-    private void loadCategories(JComboBox<String> combo) {
-        try {
-            String sql = "SELECT category_name FROM asset_categories ORDER BY category_name";
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
+    // Swaps in models over freshly reloaded lookup lists, keeping the current selections
+    private void refreshFilterModels() {
+        ReferenceDataCache.ComboModel categories =
+                new ReferenceDataCache.ComboModel("All Categories", referenceData.getCategories());
+        categories.setSelectedItem(filterCategoryCombo.getSelectedItem());
+        filterCategoryCombo.setModel(categories);
+
+        ReferenceDataCache.ComboModel statuses =
+                new ReferenceDataCache.ComboModel("All Statuses", referenceData.getStatuses());
+        statuses.setSelectedItem(filterStatusCombo.getSelectedItem());
+        filterStatusCombo.setModel(statuses);
+    }
 
-            while (rs.next()) {
-                combo.addItem(rs.getString("category_name"));
+    // Fills the in-memory columnar mirror in the background; reports use it once it is ready
+    private void loadAssetStore() {
+        queryExecutor.submit("Loading asset store", ctx -> {
+            changeFeed.reset(ctx);
+            assetStore.load(ctx.getConnection());
+            ctx.addRows(assetStore.size());
+            return assetStore.size();
+        }, rows -> {
+            System.out.println("Loaded " + rows + " assets into the columnar store (~" +
+                    assetStore.estimatedBytes() / 1024 + " KB)");
+            if (tableFromSnapshot || !tableModel.isComplete()) {
+                rerunFilter(); // The table was showing the older snapshot, or still paging from MySQL
             }
+            saveSnapshotInBackground();
+        }, Throwable::printStackTrace);
+    }
 
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    private void sortTable(int column) {
+        if (offline && !assetStore.isLoaded()) {
+            return; // Nothing to sort the rows by
         }
+        tableModel.sortBy(column, e -> {
+            updateTableHeader();
+            showDatabaseError("Error sorting assets: ", e);
+        });
+        updateTableHeader();
     }
 
-    private void loadStatuses(JComboBox<String> combo) {
-        try {
-            String sql = "SELECT status_name FROM asset_status ORDER BY status_name";
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
+    private void updateTableHeader() {
+        TableColumnModel columns = table.getColumnModel();
+        for (int i = 0; i < columns.getColumnCount(); i++) {
+            columns.getColumn(i).setHeaderValue(tableModel.getColumnName(columns.getColumn(i).getModelIndex()));
+        }
+        table.getTableHeader().repaint();
+    }
 
-            while (rs.next()) {
-                combo.addItem(rs.getString("status_name"));
-            }
+    private void rerunFilter() {
+        tableFromSnapshot = false;
+        lastSearch = null;
+        if (shownFiltered) {
+            filterTable();
+        } else {
+            loadAssets();
+        }
+    }
 
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    private void loadAssets() {
+        lastSearch = null;
+        if (assetStore.isLoaded()) {
+            int[] ids = assetStore.filterIds(null, null, null);
+            ColumnarAssetStore.Totals totals = aggregates.isReady() ? aggregates.totals() : assetStore.totals(ids);
+            tableModel.showIds(ids, "", new ArrayList<>());
+            showResult(false, null, null, null, new AssetTotals(totals.count, totals.getCost()));
+            return;
         }
+        tableModel.reload("Loading assets", "", new ArrayList<>(),
+                totals -> showResult(false, null, null, null, totals),
+                e -> showDatabaseError("Error loading assets: ", e));
     }
 
-    private void loadLocations(JComboBox<String> combo) {
-        try {
-            String sql = "SELECT location_name FROM asset_locations ORDER BY location_name";
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
+    // Records the filter behind the rows now on screen and updates the status bar
+    private void showResult(boolean filtered, String search, String category, String status, AssetTotals totals) {
+        shownFiltered = filtered;
+        shownSearch = search;
+        shownCategory = category;
+        shownStatus = status;
+        shownTotals = totals;
+        updateStatusBar();
+    }
 
-            while (rs.next()) {
-                combo.addItem(rs.getString("location_name"));
-            }
+    private void updateStatusBar() {
+        String prefix = shownFiltered ? "Filtered" : "Total";
+        totalAssetsLabel.setText(prefix + " Assets: " + shownTotals.count);
+        totalValueLabel.setText(prefix + " Value: $" + String.format("%.2f", shownTotals.value));
+    }
 
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    // Same test as the filter queries: LIKE '%term%' on the default case-insensitive collation
+    private boolean matchesShownFilter(Asset asset) {
+        if (shownSearch != null && !ColumnarAssetStore.containsIgnoreCase(asset.getName(), shownSearch)
+                && !ColumnarAssetStore.containsIgnoreCase(asset.getDescription(), shownSearch)
+                && !ColumnarAssetStore.containsIgnoreCase(asset.getSerialNumber(), shownSearch)) {
+            return false;
         }
+        return (shownCategory == null || shownCategory.equals(asset.getCategory()))
+                && (shownStatus == null || shownStatus.equals(asset.getStatus()));
     }
 
-    private void loadAssets() {
-        try {
-            tableModel.setRowCount(0);
-            String sql = "SELECT * FROM fixed_assets ORDER BY id";
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-
-            int totalAssets = 0;
-            double totalValue = 0.0;
-
-            while (rs.next()) {
-                Asset asset = new Asset(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("category"),
-                        rs.getString("description"),
-                        rs.getDouble("cost"),
-                        rs.getDate("purchase_date").toLocalDate(),
-                        rs.getString("location"),
-                        rs.getString("status"),
-                        rs.getString("serial_number"),
-                        rs.getString("supplier"),
-                        rs.getDate("warranty_expiry") != null ?
-                                rs.getDate("warranty_expiry").toLocalDate() : null,
-                        rs.getDouble("depreciation_rate")
-                );
-                tableModel.addRow(asset.toTableRow());
-                totalAssets++;
-                totalValue += asset.getCost();
-            }
-
-            // Update status bar
-            totalAssetsLabel.setText("Total Assets: " + totalAssets);
-            totalValueLabel.setText("Total Value: $" + String.format("%.2f", totalValue));
-
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error loading assets: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+    // Applies one written row to the table and the totals instead of reloading everything.
+    // before is the row as it was (null for an insert), after the row as written (null for a delete).
+    // While the table is still reading its rows from MySQL the filter is run again instead.
+    private void applyAssetChange(Asset before, Asset after) {
+        if (!tableModel.canApplyChanges()) {
+            rerunFilter();
+            return;
+        }
+        lastSearch = null; // Its ids no longer describe the table
+        int count = shownTotals.count;
+        double value = shownTotals.value;
+        int assetId = after != null ? after.getId() : before.getId();
+
+        if (tableModel.containsAsset(assetId)) {
+            count--;
+            value -= before != null ? before.getCost() : 0.0;
+        }
+        if (after != null && matchesShownFilter(after)) {
+            count++;
+            value += after.getCost();
+            tableModel.insertAsset(after); // Updates the row if it is already shown
+        } else {
+            tableModel.removeAsset(assetId);
         }
+
+        shownTotals = new AssetTotals(count, value);
+        updateStatusBar();
     }
 
-    private void filterTable() {
-        try {
-            StringBuilder sql = new StringBuilder("SELECT * FROM fixed_assets WHERE 1=1");
-            List<Object> params = new ArrayList<>();
-
-            // Search filter
-            String searchText = searchField.getText().trim();
-            if (!searchText.isEmpty()) {
-                sql.append(" AND (name LIKE ? OR description LIKE ? OR serial_number LIKE ?)");
-                String searchPattern = "%" + searchText + "%";
-                params.add(searchPattern);
-                params.add(searchPattern);
-                params.add(searchPattern);
+    // Pulls the rows changed since the last sync into the store and the table. Until the store is
+    // loaded and change tracking has started, a manual refresh reloads the table instead.
+    private void refreshChanges(boolean manual) {
+        if (!assetStore.isLoaded() || !changeFeed.isStarted()) {
+            if (manual) {
+                loadAssets();
             }
+            return;
+        }
+        if (syncing) {
+            return;
+        }
 
-            // Category filter
-            String selectedCategory = (String) filterCategoryCombo.getSelectedItem();
-            if (selectedCategory != null && !selectedCategory.equals("All Categories")) {
-                sql.append(" AND category = ?");
-                params.add(selectedCategory);
+        syncing = true;
+        queryExecutor.submit("Checking for changes", ctx -> changeFeed.sync(ctx, assetStore), changes -> {
+            syncing = false;
+            tableFromSnapshot = false;
+            if (!changes.isEmpty()) {
+                saveSnapshotInBackground();
             }
-
-            // Status filter
-            String selectedStatus = (String) filterStatusCombo.getSelectedItem();
-            if (selectedStatus != null && !selectedStatus.equals("All Statuses")) {
-                sql.append(" AND status = ?");
-                params.add(selectedStatus);
+            if (changes.size() > MAX_CHANGES_APPLIED_IN_PLACE
+                    || !changes.isEmpty() && !tableModel.canApplyChanges()) {
+                rerunFilter();
+                return;
             }
-
-            sql.append(" ORDER BY id");
-
-            PreparedStatement stmt = connection.prepareStatement(sql.toString());
-            for (int i = 0; i < params.size(); i++) {
-                stmt.setObject(i + 1, params.get(i));
+            for (AssetChangeFeed.Change change : changes) {
+                applyAssetChange(change.before, change.after);
+            }
+        }, e -> {
+            syncing = false;
+            if (manual) {
+                showDatabaseError("Error refreshing assets: ", e);
+            } else {
+                e.printStackTrace();
             }
+        });
+    }
 
-            ResultSet rs = stmt.executeQuery();
-            tableModel.setRowCount(0);
-
-            int totalAssets = 0;
-            double totalValue = 0.0;
-
-            while (rs.next()) {
-                Asset asset = new Asset(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("category"),
-                        rs.getString("description"),
-                        rs.getDouble("cost"),
-                        rs.getDate("purchase_date").toLocalDate(),
-                        rs.getString("location"),
-                        rs.getString("status"),
-                        rs.getString("serial_number"),
-                        rs.getString("supplier"),
-                        rs.getDate("warranty_expiry") != null ?
-                                rs.getDate("warranty_expiry").toLocalDate() : null,
-                        rs.getDouble("depreciation_rate")
-                );
-                tableModel.addRow(asset.toTableRow());
-                totalAssets++;
-                totalValue += asset.getCost();
+    private void filterTable() {
+        searchDebounce.stop();
+        String searchText = searchField.getText().trim();
+        String selectedCategory = (String) filterCategoryCombo.getSelectedItem();
+        if (selectedCategory != null && selectedCategory.equals("All Categories")) {
+            selectedCategory = null;
+        }
+        String selectedStatus = (String) filterStatusCombo.getSelectedItem();
+        if (selectedStatus != null && selectedStatus.equals("All Statuses")) {
+            selectedStatus = null;
+        }
+        List<Object> params = new ArrayList<>();
+        String where = SqlStatements.assetFilter(searchText, selectedCategory, selectedStatus, params);
+
+        // Once the columnar store is loaded every filter is answered in memory, a search term by
+        // the trigram index; the SQL query is only the fallback while the store is still loading
+        String search = searchText.isEmpty() ? null : searchText;
+        if (assetStore.isLoaded()) {
+            int[] ids;
+            if (search == null) {
+                ids = assetStore.filterIds(null, selectedCategory, selectedStatus);
+            } else if (lastSearch != null && lastSearch.covers(search, selectedCategory, selectedStatus)) {
+                if (lastSearch.term.equalsIgnoreCase(search)) {
+                    return; // Nothing changed since the last search
+                }
+                // The term only got longer: narrow the previous result instead of searching again
+                ids = assetStore.filterIds(lastSearch.ids, search, null, null);
+            } else if (searchIndex.isReady()) {
+                ids = assetStore.filterIds(searchIndex.search(search), null, selectedCategory, selectedStatus);
+            } else {
+                ids = assetStore.filterIds(search, selectedCategory, selectedStatus);
             }
+            lastSearch = search != null ? new LastSearch(search, selectedCategory, selectedStatus, ids) : null;
+            // Without a search term the running aggregates already hold the totals
+            ColumnarAssetStore.Totals totals = search == null && aggregates.isReady()
+                    ? aggregates.totals(selectedCategory, selectedStatus) : assetStore.totals(ids);
+            tableModel.showIds(ids, where, params);
+            showResult(true, search, selectedCategory, selectedStatus,
+                    new AssetTotals(totals.count, totals.getCost()));
+            return;
+        }
 
-            totalAssetsLabel.setText("Filtered Assets: " + totalAssets);
-            totalValueLabel.setText("Filtered Value: $" + String.format("%.2f", totalValue));
+        lastSearch = null;
+        String category = selectedCategory;
+        String status = selectedStatus;
+        tableModel.reload("Filtering assets", where, params,
+                totals -> showResult(true, search, category, status, totals),
+                e -> showDatabaseError("Error filtering assets: ", e));
+    }
 
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error filtering assets: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+    // Id of the selected asset, or null (after telling the user) when nothing usable is selected
+    private Integer getSelectedAssetId(String action) {
+        int selectedRow = table.getSelectedRow();
+        Integer assetId = selectedRow == -1 ? null : tableModel.getAssetIdAt(selectedRow);
+        if (assetId == null) {
+            JOptionPane.showMessageDialog(frame, "Please select an asset to " + action + ".",
+                    "No Selection", JOptionPane.WARNING_MESSAGE);
         }
+        return assetId;
+    }
+
+    private void showDatabaseError(String message, SQLException e) {
+        JOptionPane.showMessageDialog(frame, message + e.getMessage(),
+                "Database Error", JOptionPane.ERROR_MESSAGE);
     }
 
     private void clearFilters() {
         searchField.setText("");
+        searchDebounce.stop();
         filterCategoryCombo.setSelectedIndex(0);
         filterStatusCombo.setSelectedIndex(0);
         loadAssets();
     }
 
     private void showAddAssetDialog() {
-        EnhancedAssetDialog dialog = new EnhancedAssetDialog(frame, "Add New Asset", null, connection);
+        EnhancedAssetDialog dialog = new EnhancedAssetDialog(frame, "Add New Asset", null, referenceData);
         if (dialog.showDialog()) {
             Asset newAsset = dialog.getAsset();
-            if (saveAssetToDatabase(newAsset)) {
-                loadAssets();
-                JOptionPane.showMessageDialog(frame, "Asset added successfully!");
-            }
+            queryExecutor.submit("Saving asset", ctx -> saveAssetToDatabase(ctx, newAsset), saved -> {
+                if (saved != null) {
+                    applyAssetChange(null, saved);
+                    JOptionPane.showMessageDialog(frame, "Asset added successfully!");
+                }
+            }, e -> showDatabaseError("Error saving asset: ", e));
         }
     }
 
     private void showEditAssetDialog() {
-        int selectedRow = table.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(frame, "Please select an asset to edit.",
-                    "No Selection", JOptionPane.WARNING_MESSAGE);
+        Integer assetId = getSelectedAssetId("edit");
+        if (assetId == null) {
             return;
         }
 
-        int assetId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        Asset asset = loadAssetFromDatabase(assetId);
-
-        if (asset != null) {
-            EnhancedAssetDialog dialog = new EnhancedAssetDialog(frame, "Edit Asset", asset, connection);
-            if (dialog.showDialog()) {
-                Asset updatedAsset = dialog.getAsset();
-                updatedAsset.id = assetId; // Preserve the ID
-                if (updateAssetInDatabase(updatedAsset)) {
-                    loadAssets();
-                    JOptionPane.showMessageDialog(frame, "Asset updated successfully!");
+        queryExecutor.submit("Loading asset", ctx -> loadAssetFromDatabase(ctx, assetId), asset -> {
+            if (asset != null) {
+                EnhancedAssetDialog dialog = new EnhancedAssetDialog(frame, "Edit Asset", asset, referenceData);
+                if (dialog.showDialog()) {
+                    Asset updatedAsset = dialog.getAsset();
+                    updatedAsset.id = assetId; // Preserve the ID
+                    queryExecutor.submit("Updating asset", ctx -> updateAssetInDatabase(ctx, updatedAsset), updated -> {
+                        if (updated != null) {
+                            applyAssetChange(asset, updated);
+                            JOptionPane.showMessageDialog(frame, "Asset updated successfully!");
+                        }
+                    }, e -> showDatabaseError("Error updating asset: ", e));
                 }
             }
-        }
+        }, e -> showDatabaseError("Error loading asset: ", e));
     }
 
     private void deleteSelectedAsset() {
-        int selectedRow = table.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(frame, "Please select an asset to delete.",
-                    "No Selection", JOptionPane.WARNING_MESSAGE);
+        Integer assetId = getSelectedAssetId("delete");
+        if (assetId == null) {
             return;
         }
 
@@ -484,97 +885,72 @@ public class FixedAssetsRegistry {
                 "Confirm Delete", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            int assetId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            if (deleteAssetFromDatabase(assetId)) {
-                loadAssets();
-                JOptionPane.showMessageDialog(frame, "Asset deleted successfully!");
-            }
+            queryExecutor.submit("Deleting asset", ctx -> deleteAssetFromDatabase(ctx, assetId), deleted -> {
+                if (deleted != null) {
+                    applyAssetChange(deleted, null);
+                    JOptionPane.showMessageDialog(frame, "Asset deleted successfully!");
+                }
+            }, e -> showDatabaseError("Error deleting asset: ", e));
         }
     }
 
     private void duplicateSelectedAsset() {
-        int selectedRow = table.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(frame, "Please select an asset to duplicate.",
-                    "No Selection", JOptionPane.WARNING_MESSAGE);
+        Integer assetId = getSelectedAssetId("duplicate");
+        if (assetId == null) {
             return;
         }
 
-        int assetId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        Asset originalAsset = loadAssetFromDatabase(assetId);
-
-        if (originalAsset != null) {
-            // Create a copy with a modified name
-            Asset duplicateAsset = new Asset(
-                    0, // New ID will be assigned
-                    originalAsset.getName() + " (Copy)",
-                    originalAsset.getCategory(),
-                    originalAsset.getDescription(),
-                    originalAsset.getCost(),
-                    LocalDate.now(), // Set current date
-                    originalAsset.getLocation(),
-                    "Active", // Set as active
-                    "", // Clear serial number
-                    originalAsset.getSupplier(),
-                    originalAsset.getWarrantyExpiry(),
-                    originalAsset.getDepreciationRate()
-            );
-
-            EnhancedAssetDialog dialog = new EnhancedAssetDialog(frame, "Duplicate Asset", duplicateAsset, connection);
-            if (dialog.showDialog()) {
-                Asset newAsset = dialog.getAsset();
-                if (saveAssetToDatabase(newAsset)) {
-                    loadAssets();
-                    JOptionPane.showMessageDialog(frame, "Asset duplicated successfully!");
+        queryExecutor.submit("Loading asset", ctx -> loadAssetFromDatabase(ctx, assetId), originalAsset -> {
+            if (originalAsset != null) {
+                // Create a copy with a modified name
+                Asset duplicateAsset = new Asset(
+                        0, // New ID will be assigned
+                        originalAsset.getName() + " (Copy)",
+                        originalAsset.getCategory(),
+                        originalAsset.getDescription(),
+                        originalAsset.getCost(),
+                        LocalDate.now(), // Set current date
+                        originalAsset.getLocation(),
+                        "Active", // Set as active
+                        "", // Clear serial number
+                        originalAsset.getSupplier(),
+                        originalAsset.getWarrantyExpiry(),
+                        originalAsset.getDepreciationRate()
+                );
+
+                EnhancedAssetDialog dialog = new EnhancedAssetDialog(frame, "Duplicate Asset", duplicateAsset, referenceData);
+                if (dialog.showDialog()) {
+                    Asset newAsset = dialog.getAsset();
+                    queryExecutor.submit("Saving asset", ctx -> saveAssetToDatabase(ctx, newAsset), saved -> {
+                        if (saved != null) {
+                            applyAssetChange(null, saved);
+                            JOptionPane.showMessageDialog(frame, "Asset duplicated successfully!");
+                        }
+                    }, e -> showDatabaseError("Error saving asset: ", e));
                 }
             }
-        }
+        }, e -> showDatabaseError("Error loading asset: ", e));
     }
 
-    private Asset loadAssetFromDatabase(int assetId) {
-        try {
-            String sql = "SELECT * FROM fixed_assets WHERE id = ?";
-            PreparedStatement stmt = connection.prepareStatement(sql);
+    private Asset loadAssetFromDatabase(QueryExecutor.QueryContext ctx, int assetId) throws SQLException {
+        String sql = SqlStatements.SELECT_ASSET_BY_ID;
+        try (PreparedStatement stmt = ctx.prepare(sql)) {
             stmt.setInt(1, assetId);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                Asset asset = new Asset(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("category"),
-                        rs.getString("description"),
-                        rs.getDouble("cost"),
-                        rs.getDate("purchase_date").toLocalDate(),
-                        rs.getString("location"),
-                        rs.getString("status"),
-                        rs.getString("serial_number"),
-                        rs.getString("supplier"),
-                        rs.getDate("warranty_expiry") != null ?
-                                rs.getDate("warranty_expiry").toLocalDate() : null,
-                        rs.getDouble("depreciation_rate")
-                );
-                rs.close();
-                stmt.close();
-                return asset;
-            }
 
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error loading asset: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    ctx.addRows(1);
+                    return new AssetRowMapper(rs).map();
+                }
+            }
         }
         return null;
     }
 
-    private boolean saveAssetToDatabase(Asset asset) {
-        try {
-            String sql = "INSERT INTO fixed_assets (name, category, description, cost, purchase_date, " +
-                    "location, status, serial_number, supplier, warranty_expiry, depreciation_rate) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            PreparedStatement stmt = connection.prepareStatement(sql);
-
+    // Inserts the asset and returns it with its generated id, or null if nothing was inserted
+    private Asset saveAssetToDatabase(QueryExecutor.QueryContext ctx, Asset asset) throws SQLException {
+        String sql = SqlStatements.INSERT_ASSET;
+        try (PreparedStatement stmt = ctx.prepare(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, asset.getName());
             stmt.setString(2, asset.getCategory());
             stmt.setString(3, asset.getDescription());
@@ -588,23 +964,25 @@ public class FixedAssetsRegistry {
                     Date.valueOf(asset.getWarrantyExpiry()) : null);
             stmt.setDouble(11, asset.getDepreciationRate());
 
-            int result = stmt.executeUpdate();
-            stmt.close();
-            return result > 0;
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error saving asset: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Insert did not return the new asset id");
+                }
+                asset.id = keys.getInt(1);
+            }
+            ctx.addRows(1);
+            assetStore.upsert(asset);
+            return asset;
         }
     }
 
-    private boolean updateAssetInDatabase(Asset asset) {
-        try {
-            String sql = "UPDATE fixed_assets SET name=?, category=?, description=?, cost=?, " +
-                    "purchase_date=?, location=?, status=?, serial_number=?, supplier=?, " +
-                    "warranty_expiry=?, depreciation_rate=? WHERE id=?";
-            PreparedStatement stmt = connection.prepareStatement(sql);
-
+    // Returns the asset as written, or null if it no longer exists
+    private Asset updateAssetInDatabase(QueryExecutor.QueryContext ctx, Asset asset) throws SQLException {
+        String sql = SqlStatements.UPDATE_ASSET;
+        try (PreparedStatement stmt = ctx.prepare(sql)) {
             stmt.setString(1, asset.getName());
             stmt.setString(2, asset.getCategory());
             stmt.setString(3, asset.getDescription());
@@ -619,158 +997,266 @@ public class FixedAssetsRegistry {
             stmt.setDouble(11, asset.getDepreciationRate());
             stmt.setInt(12, asset.getId());
 
-            int result = stmt.executeUpdate();
-            stmt.close();
-            return result > 0;
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error updating asset: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+            ctx.addRows(1);
+            assetStore.upsert(asset);
+            return asset;
         }
     }
 
-    private boolean deleteAssetFromDatabase(int assetId) {
-        try {
-            String sql = "DELETE FROM fixed_assets WHERE id = ?";
-            PreparedStatement stmt = connection.prepareStatement(sql);
+    // Returns the deleted asset, so its cost can come off the totals, or null if it was already gone
+    private Asset deleteAssetFromDatabase(QueryExecutor.QueryContext ctx, int assetId) throws SQLException {
+        Asset asset = loadAssetFromDatabase(ctx, assetId);
+        if (asset == null) {
+            return null;
+        }
+        String sql = SqlStatements.DELETE_ASSET;
+        try (PreparedStatement stmt = ctx.prepare(sql)) {
             stmt.setInt(1, assetId);
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+            assetStore.remove(assetId);
+            return asset;
+        }
+    }
 
-            int result = stmt.executeUpdate();
-            stmt.close();
-            return result > 0;
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error deleting asset: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+    private void importFromCSV() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import CSV File");
+
+        if (fileChooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+            Path file = fileChooser.getSelectedFile().toPath();
+            AssetCsvImporter importer = new AssetCsvImporter(referenceData, IMPORT_COMMIT_CHUNK_SIZE);
+
+            setCancellableTask(queryExecutor.submit("Importing assets", ctx -> {
+                try {
+                    return importer.importFile(ctx, file);
+                } catch (IOException e) {
+                    throw new SQLException(e.getMessage(), e);
+                }
+            }, result -> {
+                setCancellableTask(null);
+                // The new rows reach the table and the store like any other change
+                refreshChanges(true);
+
+                StringBuilder report = new StringBuilder();
+                report.append(String.format("Imported %d assets in %.1f s (%.0f rows/s).%n",
+                        result.imported, result.elapsedNanos / 1_000_000_000.0, result.getRowsPerSecond()));
+                if (result.rejected > 0) {
+                    report.append(String.format("%d rows were rejected:%n%n", result.rejected));
+                    for (AssetCsvImporter.RowError error : result.errors) {
+                        report.append(error).append('\n');
+                    }
+                    if (result.rejected > result.errors.size()) {
+                        report.append("...\n");
+                    }
+                }
+
+                JTextArea textArea = new JTextArea(report.toString());
+                textArea.setEditable(false);
+                JScrollPane scrollPane = new JScrollPane(textArea);
+                scrollPane.setPreferredSize(new Dimension(600, result.rejected > 0 ? 300 : 60));
+                JOptionPane.showMessageDialog(frame, scrollPane, "Import Complete",
+                        result.rejected > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+            }, e -> {
+                setCancellableTask(null);
+                JOptionPane.showMessageDialog(frame, "Error importing data: " + e.getMessage(),
+                        "Import Error", JOptionPane.ERROR_MESSAGE);
+            }));
         }
     }
 
+    // Shows the status bar's Cancel button for a long-running job, or hides it when handle is null
+    private void setCancellableTask(QueryExecutor.QueryHandle handle) {
+        cancellableTask = handle;
+        cancelTaskButton.setVisible(handle != null);
+    }
+
     private void exportToCSV() {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Save CSV File");
+        fileChooser.setDialogTitle("Save CSV File (name it .csv.gz to compress)");
         fileChooser.setSelectedFile(new java.io.File("assets_export.csv"));
 
         if (fileChooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
-            try (java.io.PrintWriter writer = new java.io.PrintWriter(fileChooser.getSelectedFile())) {
-                // Write header
-                writer.println("ID,Name,Category,Description,Cost,Purchase Date,Location,Status,Serial Number,Supplier,Warranty Expiry");
-
-                // Write data
-                for (int i = 0; i < tableModel.getRowCount(); i++) {
-                    StringBuilder line = new StringBuilder();
-                    for (int j = 0; j < tableModel.getColumnCount(); j++) {
-                        if (j > 0) line.append(",");
-                        Object value = tableModel.getValueAt(i, j);
-                        line.append("\"").append(value != null ? value.toString() : "").append("\"");
-                    }
-                    writer.println(line.toString());
+            Path file = fileChooser.getSelectedFile().toPath();
+            // The table only holds the pages on screen, so export re-runs the current filter
+            String sql = SqlStatements.assetExport(tableModel.getWhereClause());
+            List<Object> params = tableModel.getParams();
+            AssetCsvExporter exporter = new AssetCsvExporter();
+
+            setCancellableTask(queryExecutor.submit("Exporting assets", ctx -> {
+                try {
+                    return exporter.export(ctx, sql, params, file);
+                } catch (IOException e) {
+                    throw new SQLException(e.getMessage(), e);
                 }
-
-                JOptionPane.showMessageDialog(frame, "Data exported successfully to " +
-                        fileChooser.getSelectedFile().getName());
-            } catch (Exception e) {
+            }, rows -> {
+                setCancellableTask(null);
+                JOptionPane.showMessageDialog(frame, "Exported " + rows + " assets to " + file.getFileName());
+            }, e -> {
+                setCancellableTask(null);
                 JOptionPane.showMessageDialog(frame, "Error exporting data: " + e.getMessage(),
                         "Export Error", JOptionPane.ERROR_MESSAGE);
-            }
+            }));
         }
     }
 
     private void showAssetSummary() {
-        try {
-            String sql = "SELECT category, COUNT(*) as count, SUM(cost) as total_value, " +
-                    "AVG(cost) as avg_value FROM fixed_assets WHERE status != 'Disposed' " +
-                    "GROUP BY category ORDER BY total_value DESC";
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-
-            StringBuilder summary = new StringBuilder();
-            summary.append("Asset Summary Report\n");
-            summary.append("==================\n\n");
-            summary.append(String.format("%-20s %8s %12s %12s\n", "Category", "Count", "Total Value", "Avg Value"));
-            summary.append("--------------------------------------------------------\n");
-
-            while (rs.next()) {
-                summary.append(String.format("%-20s %8d $%11.2f $%11.2f\n",
-                        rs.getString("category"),
-                        rs.getInt("count"),
-                        rs.getDouble("total_value"),
-                        rs.getDouble("avg_value")));
-            }
-
-            JTextArea textArea = new JTextArea(summary.toString());
-            textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-            textArea.setEditable(false);
-
-            JScrollPane scrollPane = new JScrollPane(textArea);
-            scrollPane.setPreferredSize(new Dimension(500, 300));
-
-            JOptionPane.showMessageDialog(frame, scrollPane, "Asset Summary", JOptionPane.INFORMATION_MESSAGE);
-
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error generating summary: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+        ReportTableModel.Rows model = AssetReports.newSummaryModel();
+        ReportViewer viewer = new ReportViewer(frame, "Asset Summary", model);
+
+        // Read the running aggregates when they are built; fall back to MySQL until then
+        if (aggregates.isReady()) {
+            model.append(AssetReports.summaryRows("Category", aggregates.byCategory("Disposed")));
+            model.append(AssetReports.summaryRows("Status", aggregates.byStatus()));
+            viewer.setVisible(true);
+            return;
         }
+
+        // Rows are shown as they arrive
+        model.setComplete(false);
+        viewer.setVisible(true);
+        queryExecutor.submit("Building asset summary", ctx -> {
+            AssetReports.readSummary(ctx, "", Collections.emptyList(), chunk -> ctx.publish(model::append, chunk));
+            return null;
+        }, done -> model.setComplete(true), e -> {
+            viewer.dispose();
+            showDatabaseError("Error generating summary: ", e);
+        });
     }
 
     private void showDepreciationReport() {
+        JComboBox<DepreciationEngine.Method> methodCombo = new JComboBox<>(DepreciationEngine.Method.values());
+        JTextField asOfField = new JTextField(LocalDate.now().toString(), 10);
+        JSpinner projectionSpinner = new JSpinner(new SpinnerNumberModel(5, 0, 30, 1));
+        JPanel options = new JPanel(new GridLayout(0, 2, 5, 5));
+        options.add(new JLabel("Method:"));
+        options.add(methodCombo);
+        options.add(new JLabel("As of (YYYY-MM-DD):"));
+        options.add(asOfField);
+        options.add(new JLabel("Years to project:"));
+        options.add(projectionSpinner);
+
+        if (JOptionPane.showConfirmDialog(frame, options, "Depreciation Report",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        LocalDate asOf;
         try {
-            String sql = "SELECT name, category, cost, purchase_date, depreciation_rate, " +
-                    "ROUND(cost * (1 - (depreciation_rate / 100) * " +
-                    "DATEDIFF(CURDATE(), purchase_date) / 365), 2) as current_value " +
-                    "FROM fixed_assets WHERE status != 'Disposed' AND depreciation_rate > 0 " +
-                    "ORDER BY category, name";
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-
-            StringBuilder report = new StringBuilder();
-            report.append("Depreciation Report\n");
-            report.append("==================\n\n");
-            report.append(String.format("%-25s %-15s %12s %12s %8s %12s\n",
-                    "Asset Name", "Category", "Original", "Current", "Rate%", "Purchase Date"));
-            report.append("---------------------------------------------------------------------------------\n");
-
-            while (rs.next()) {
-                report.append(String.format("%-25s %-15s $%11.2f $%11.2f %7.1f%% %12s\n",
-                        rs.getString("name").length() > 25 ?
-                                rs.getString("name").substring(0, 22) + "..." : rs.getString("name"),
-                        rs.getString("category"),
-                        rs.getDouble("cost"),
-                        rs.getDouble("current_value"),
-                        rs.getDouble("depreciation_rate"),
-                        rs.getDate("purchase_date").toString()));
+            asOf = LocalDate.parse(asOfField.getText().trim());
+        } catch (java.time.format.DateTimeParseException e) {
+            JOptionPane.showMessageDialog(frame, "Please enter a valid date in YYYY-MM-DD format.",
+                    "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        DepreciationEngine.Method method = (DepreciationEngine.Method) methodCombo.getSelectedItem();
+        int projectionYears = (Integer) projectionSpinner.getValue();
+
+        queryExecutor.submit("Building depreciation report", ctx -> {
+            // Read the inputs from the columnar store when it is loaded; fall back to MySQL until then
+            DepreciationEngine.Basis basis;
+            if (assetStore.isLoaded()) {
+                basis = assetStore.depreciationBasis("Disposed", true);
+            } else {
+                basis = AssetReports.readDepreciationBasis(ctx, "", Collections.emptyList());
             }
+            return AssetReports.depreciationReport(depreciationEngine, basis, method, asOf, projectionYears);
+        }, report -> new ReportViewer(frame, "Depreciation Report", report).setVisible(true),
+                e -> showDatabaseError("Error generating depreciation report: ", e));
+    }
 
-            JTextArea textArea = new JTextArea(report.toString());
-            textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-            textArea.setEditable(false);
-
-            JScrollPane scrollPane = new JScrollPane(textArea);
-            scrollPane.setPreferredSize(new Dimension(700, 400));
-
-            JOptionPane.showMessageDialog(frame, scrollPane, "Depreciation Report", JOptionPane.INFORMATION_MESSAGE);
-
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error generating depreciation report: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+    // Reads the materialized schedule: the stored totals, and the selected asset's stored values
+    // as one range. After a new month has started the periods are rolled over first, which
+    // computes every asset's values again, so that runs on the query executor; it needs no
+    // connection and works offline too.
+    private void showMonthEndBookValues() {
+        if (!depreciationSchedule.isReady()) {
+            JOptionPane.showMessageDialog(frame, "The depreciation schedule is still being built. Please try again shortly.",
+                    "Month-End Book Values", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (!depreciationSchedule.isCurrent()) {
+            queryExecutor.submitLocal("Rolling the depreciation schedule over", ctx -> depreciationSchedule.rollOver(),
+                    current -> {
+                if (current) {
+                    showMonthEndBookValues();
+                } else {
+                    JOptionPane.showMessageDialog(frame, "Assets kept changing while the depreciation schedule was rebuilt. Please try again.",
+                            "Month-End Book Values", JOptionPane.INFORMATION_MESSAGE);
+                }
+            }, e -> showDatabaseError("Error rebuilding the depreciation schedule: ", e));
+            return;
         }
+        LocalDate[] ends = depreciationSchedule.getPeriodEnds();
+        long[] totals = depreciationSchedule.getPeriodTotals();
+        Integer selectedId = tableModel.getAssetIdAt(table.getSelectedRow());
+        long[] selected = selectedId != null ? depreciationSchedule.getBookValues(selectedId) : null;
+
+        String[] columns = selected != null ? new String[]{"Month End", "Book Value", "Asset #" + selectedId}
+                : new String[]{"Month End", "Book Value"};
+        ReportTableModel.Format[] formats = selected != null
+                ? new ReportTableModel.Format[]{ReportTableModel.Format.DATE, ReportTableModel.Format.MONEY, ReportTableModel.Format.MONEY}
+                : new ReportTableModel.Format[]{ReportTableModel.Format.DATE, ReportTableModel.Format.MONEY};
+        ReportTableModel.Rows model = new ReportTableModel.Rows(columns, formats,
+                selected != null ? new int[]{12, 20, 20} : new int[]{12, 20});
+        model.setNotes("Method: " + depreciationSchedule.getMethod());
+        // Most recent first
+        List<Object[]> rows = new ArrayList<>(ends.length);
+        for (int period = ends.length - 1; period >= 0; period--) {
+            rows.add(selected != null ? new Object[]{ends[period], totals[period] / 100.0, selected[period] / 100.0}
+                    : new Object[]{ends[period], totals[period] / 100.0});
+        }
+        model.append(rows);
+        new ReportViewer(frame, "Month-End Book Values", model).setVisible(true);
     }
 
     public void show() {
         frame.setVisible(true);
     }
 
-    public void dispose() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+    // Saves the snapshot for the next start, then exits. The store can take seconds to write, so
+    // that runs off the event thread while the window shows progress and takes no more input.
+    private void exitApplication() {
+        if (exiting) {
+            return;
+        }
+        exiting = true;
+        if (refreshPoll != null) {
+            refreshPoll.stop();
+        }
+        frame.setEnabled(false);
+        progressBar.setVisible(true);
+        progressBar.setIndeterminate(true);
+        progressBar.setString("Saving the local snapshot...");
+        Thread.ofVirtual().name("snapshot-writer").start(() -> {
+            try {
+                saveSnapshot();
+            } finally {
+                SwingUtilities.invokeLater(() -> {
+                    dispose();
+                    System.exit(0);
+                });
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        });
+    }
+
+    public void dispose() {
+        edtWatchdog.stop();
+        if (refreshPoll != null) {
+            refreshPoll.stop();
         }
+        if (metricsLog != null) {
+            metricsLog.stop();
+            logMetrics();
+        }
+        if (apiServer != null) {
+            apiServer.stop();
+        }
+        queryExecutor.shutdown();
+        dataSource.close();
         frame.dispose();
     }
 
@@ -781,12 +1267,12 @@ public class FixedAssetsRegistry {
         private JComboBox<String> categoryCombo, locationCombo, statusCombo;
         private boolean confirmed = false;
         private Asset asset;
-        private Connection connection;
+        private final ReferenceDataCache referenceData;
 
-        public EnhancedAssetDialog(JFrame parent, String title, Asset existingAsset, Connection conn) {
+        public EnhancedAssetDialog(JFrame parent, String title, Asset existingAsset, ReferenceDataCache referenceData) {
             super(parent, title, true);
             this.asset = existingAsset;
-            this.connection = conn;
+            this.referenceData = referenceData;
             initializeDialog();
         }
 
@@ -799,15 +1285,12 @@ public class FixedAssetsRegistry {
 
             // Create form fields
             nameField = new JTextField(20);
-            categoryCombo = new JComboBox<>();
-            loadCategories(categoryCombo);
+            categoryCombo = new JComboBox<>(new ReferenceDataCache.ComboModel(null, referenceData.getCategories()));
             descriptionField = new JTextField(20);
             costField = new JTextField(20);
             purchaseDateField = new JTextField(20);
-            locationCombo = new JComboBox<>();
-            loadLocations(locationCombo);
-            statusCombo = new JComboBox<>();
-            loadStatuses(statusCombo);
+            locationCombo = new JComboBox<>(new ReferenceDataCache.ComboModel(null, referenceData.getLocations()));
+            statusCombo = new JComboBox<>(new ReferenceDataCache.ComboModel(null, referenceData.getStatuses()));
             serialNumberField = new JTextField(20);
             supplierField = new JTextField(20);
             warrantyExpiryField = new JTextField(20);
@@ -903,57 +1386,6 @@ public class FixedAssetsRegistry {
             add(buttonPanel, gbc);
         }
 
-        private void loadCategories(JComboBox<String> combo) {
-            try {
-                String sql = "SELECT category_name FROM asset_categories ORDER BY category_name";
-                PreparedStatement stmt = connection.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    combo.addItem(rs.getString("category_name"));
-                }
-
-                rs.close();
-                stmt.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
-
-        private void loadLocations(JComboBox<String> combo) {
-            try {
-                String sql = "SELECT location_name FROM asset_locations ORDER BY location_name";
-                PreparedStatement stmt = connection.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    combo.addItem(rs.getString("location_name"));
-                }
-
-                rs.close();
-                stmt.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
-
-        private void loadStatuses(JComboBox<String> combo) {
-            try {
-                String sql = "SELECT status_name FROM asset_status ORDER BY status_name";
-                PreparedStatement stmt = connection.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    combo.addItem(rs.getString("status_name"));
-                }
-
-                rs.close();
-                stmt.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
-
         private boolean validateAndSave() {
             try {
                 String name = nameField.getText().trim();
@@ -969,26 +1401,15 @@ public class FixedAssetsRegistry {
                 LocalDate warrantyExpiry = warrantyExpiryText.isEmpty() ? null : LocalDate.parse(warrantyExpiryText);
                 double depreciationRate = Double.parseDouble(depreciationRateField.getText().trim());
 
-                if (name.isEmpty() || category == null || location == null || status == null) {
-                    JOptionPane.showMessageDialog(this, "Please fill in all required fields (marked with *).",
-                            "Validation Error", JOptionPane.ERROR_MESSAGE);
-                    return false;
-                }
-
-                if (cost < 0) {
-                    JOptionPane.showMessageDialog(this, "Cost must be a positive number.",
-                            "Validation Error", JOptionPane.ERROR_MESSAGE);
-                    return false;
-                }
-
-                if (depreciationRate < 0 || depreciationRate > 100) {
-                    JOptionPane.showMessageDialog(this, "Depreciation rate must be between 0 and 100.",
-                            "Validation Error", JOptionPane.ERROR_MESSAGE);
+                Asset candidate = new Asset(0, name, category, description, cost, purchaseDate, location, status,
+                        serialNumber, supplier, warrantyExpiry, depreciationRate);
+                String error = candidate.validationError();
+                if (error != null) {
+                    JOptionPane.showMessageDialog(this, error, "Validation Error", JOptionPane.ERROR_MESSAGE);
                     return false;
                 }
 
-                asset = new Asset(0, name, category, description, cost, purchaseDate, location, status,
-                        serialNumber, supplier, warrantyExpiry, depreciationRate);
+                asset = candidate;
                 return true;
 
             } catch (NumberFormatException e) {
@@ -1012,7 +1433,12 @@ public class FixedAssetsRegistry {
         }
     }
 
+    // With arguments, runs a report or export headless instead (see RegistryBatch)
     public static void main(String[] args) {
+        if (args.length > 0) {
+            RegistryBatch.main(args);
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
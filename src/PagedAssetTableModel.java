@@ -0,0 +1,780 @@
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Table model that only keeps a window of rows in memory. A reload fetches the first page of
+// matching rows and, at the same time, their count and total cost, so the table paints as soon as
+// the first page is in. Further pages are fetched with keyset pagination as the viewport reaches
+// them, continuing after the last row whose id is known; a jump further down first reads only the
+// ids and sort keys of the rows in between. In id order the rest of the id list (4 bytes per row)
+// is also read in the background, after which pages are plain id ranges. The least recently
+// painted rows are evicted. A result already resolved in memory (e.g. by the search index) is
+// shown with showIds(). Once the columnar store is loaded (from MySQL or a local snapshot), rows
+// are read from it instead of the database, and sorting on a column reorders the ids in memory,
+// off the event thread, by each row's place in the column's order, which the store keeps; until
+// then sortBy() restarts the paging from MySQL in ORDER BY <column>, id order. Single-row
+// writes are applied in place with insertAsset(), updateAsset() and removeAsset(), at the row's
+// position in the current order, so selection and scroll position survive an edit; that needs
+// every id of the result (canApplyChanges()).
+class PagedAssetTableModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 200;
+    static final int MAX_CACHED_ROWS = 16 * PAGE_SIZE;
+
+    static final String[] COLUMN_NAMES = {"ID", "Name", "Category", "Description", "Cost",
+            "Purchase Date", "Location", "Status", "Serial No.", "Supplier", "Warranty"};
+
+    // Shown in the warranty column of an asset without one
+    static final String NO_WARRANTY = "N/A";
+
+    // Formats cost as money; dates show as yyyy-MM-dd through LocalDate.toString(). One instance
+    // per table, used on the EDT only, so its formatter is reused for every cell.
+    static class CellRenderer extends DefaultTableCellRenderer {
+        private final DecimalFormat money = new DecimalFormat("$0.00");
+
+        CellRenderer() {
+            money.setRoundingMode(RoundingMode.HALF_UP);
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof Double ? money.format(value) : value == null ? "" : value.toString());
+        }
+    }
+
+    // A new filter or order cancels the queries still running for the previous one
+    private static final String RELOAD_LANE = "assets";
+    private static final String TOTALS_LANE = "asset-totals";
+    private static final String IDS_LANE = "asset-ids";
+    private static final int ID_CHUNK_SIZE = 50 * PAGE_SIZE; // Ids added to the table at a time
+
+    // Cached for an id whose row was deleted elsewhere after its id was read, so it is not fetched again
+    private static final Object[] MISSING_ROW = new Object[0];
+
+    // Rows read in the result's order: their ids, the table values of those read in full, and
+    // pageEndKeys[i], the sort key of row (i + 1) * PAGE_SIZE - 1, where the next page continues
+    private static class Page {
+        final int[] ids;
+        final Map<Integer, Object[]> values;
+        final Object[] pageEndKeys;
+
+        Page(int[] ids, Map<Integer, Object[]> values, Object[] pageEndKeys) {
+            this.ids = ids;
+            this.values = values;
+            this.pageEndKeys = pageEndKeys;
+        }
+    }
+
+    private final QueryExecutor queryExecutor;
+    private final ColumnarAssetStore store;
+    private final Map<Integer, Object[]> rows = new LinkedHashMap<>(MAX_CACHED_ROWS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > MAX_CACHED_ROWS;
+        }
+    };
+    private final Set<Integer> pendingPages = new HashSet<>();
+
+    // The result shown. Ids are known for its first knownRows rows; the rest are read by keyset
+    // as they are reached, until ended says the list is complete. rowCount is the count MySQL
+    // gave for the filter, or knownRows once ended.
+    private String whereClause = "";
+    private List<Object> params = new ArrayList<>();
+    private int[] resultIds = new int[0]; // Capacity may exceed rowCount
+    private int rowCount;
+    private int knownRows;
+    private boolean ended = true;
+    private int resultCount = -1; // Count of the filter, once its totals are in
+    private int generation;
+    private boolean extending; // A read past knownRows is running; the next one continues from it
+    // The order resultIds is in (model index, 0 ascending being id order), which lags sortColumn
+    // while a sort from MySQL is running, and the sort key of the last row of each page read
+    private int resultColumn;
+    private boolean resultDescending;
+    private Object[] pageKeys = new Object[0];
+
+    // The order shown in the header: -1 for id order without an arrow, which is also how ID
+    // ascending is read and paged
+    private int sortColumn = -1;
+    private boolean ascending = true;
+
+    // The filter of the latest reload or showIds(), which a sort must apply even when it cancels
+    // that reload's first page, and its count once known. Each filter gets a new request number;
+    // resultFilter is the one shown.
+    private String requestedWhere = "";
+    private List<Object> requestedParams = new ArrayList<>();
+    private int requestedCount = -1;
+    private int[] requestedIds; // The ids given to showIds(), null for a reload
+    private int filterRequest;
+    private int resultFilter;
+    private boolean sorting; // The result on screen is being reordered in memory
+
+    PagedAssetTableModel(QueryExecutor queryExecutor, ColumnarAssetStore store) {
+        this.queryExecutor = queryExecutor;
+        this.store = store;
+    }
+
+    // Replaces the current result with the assets matching the given WHERE fragment
+    // (e.g. " AND status = ?"). The rows show when their first page is in; the count and total
+    // cost are read alongside and passed to onLoaded, which is not called if the page fails.
+    public void reload(String description, String whereClause, List<Object> params,
+                       Consumer<FixedAssetsRegistry.AssetTotals> onLoaded, Consumer<SQLException> onError) {
+        int request = requestFilter(whereClause, params, -1);
+        List<Object> totalsParams = requestedParams;
+        submitFirstPage(description, onError);
+        queryExecutor.submitLatest(TOTALS_LANE, description, ctx -> readTotals(ctx, whereClause, totalsParams), totals -> {
+            if (request != filterRequest) {
+                return; // Replaced, or its first page failed
+            }
+            requestedCount = totals.count;
+            if (resultFilter == request) {
+                resultCount = totals.count;
+                knownRowsChanged(knownRows);
+            }
+            onLoaded.accept(totals);
+        }, Throwable::printStackTrace);
+    }
+
+    // Shows a result whose ids (ascending, all in the store) are already known. The WHERE fragment
+    // and parameters describe the same rows in SQL; export re-runs them. While sorted on a column
+    // the ids are put in that order off the event thread, and the rows on screen stay until they
+    // are, unless the new result only narrows the one on screen (a search term got longer): then
+    // the rows on screen are cut down, keeping their order.
+    public void showIds(int[] ids, String whereClause, List<Object> params) {
+        int request = requestFilter(whereClause, params, ids.length);
+        requestedIds = ids;
+        queryExecutor.cancel(TOTALS_LANE);
+        int column = orderColumn();
+        boolean descending = orderDescending();
+        int[] ordered = column == 0 && !descending ? ids : narrowResult(ids, column, descending);
+        if (ordered == null) {
+            submitSort(ids, column, descending);
+            return;
+        }
+        queryExecutor.cancel(RELOAD_LANE);
+        replaceResult(whereClause, requestedParams, request, column, descending, ordered, true, new Object[0]);
+    }
+
+    private int requestFilter(String whereClause, List<Object> params, int count) {
+        requestedWhere = whereClause;
+        requestedParams = new ArrayList<>(params);
+        requestedCount = count;
+        requestedIds = null;
+        return ++filterRequest;
+    }
+
+    // The result on screen cut down to the given ids (ascending), if it is complete in the given
+    // order and holds every one of them; null otherwise
+    private int[] narrowResult(int[] ids, int column, boolean descending) {
+        if (!ended || resultColumn != column || resultDescending != descending || ids.length > rowCount) {
+            return null;
+        }
+        int[] narrowed = new int[ids.length];
+        int count = 0;
+        for (int row = 0; row < rowCount && count < ids.length; row++) {
+            if (Arrays.binarySearch(ids, resultIds[row]) >= 0) {
+                narrowed[count++] = resultIds[row];
+            }
+        }
+        return count == ids.length ? narrowed : null;
+    }
+
+    // Puts the ids of the requested filter in the given order with the store, off the event
+    // thread, and shows them; a newer filter or sort cancels it
+    private void submitSort(int[] ids, int column, boolean descending) {
+        String where = requestedWhere;
+        List<Object> sortParams = requestedParams;
+        int request = filterRequest;
+        sorting = true;
+        queryExecutor.submitLatestLocal(RELOAD_LANE, "Sorting assets", ctx -> store.sortIds(ids, column, descending), sorted -> {
+            if (request == filterRequest) {
+                replaceResult(where, sortParams, request, column, descending, sorted, true, new Object[0]);
+            }
+        }, e -> {
+            sorting = false;
+            e.printStackTrace();
+        });
+    }
+
+    // Sorts on the column, ascending first and descending when sorted on it already. The header
+    // shows the new order at once. With the store loaded and every id known (on screen, or given
+    // to showIds()) the ids are reordered in memory; otherwise the rows follow when the first page
+    // in that order is in from MySQL. If that fails, the previous order is restored before
+    // onError runs.
+    public void sortBy(int column, Consumer<SQLException> onError) {
+        int previousColumn = sortColumn;
+        boolean previousAscending = ascending;
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        if (store.isLoaded() && (isComplete() || requestedIds != null)) {
+            // Replaces an earlier sort still running, which would land on top
+            submitSort(isComplete() ? Arrays.copyOf(resultIds, rowCount) : requestedIds, orderColumn(), orderDescending());
+            return;
+        }
+        submitFirstPage("Sorting assets", e -> {
+            if (sortColumn == column) {
+                sortColumn = previousColumn;
+                ascending = previousAscending;
+            }
+            onError.accept(e);
+        });
+    }
+
+    private int orderColumn() {
+        return Math.max(sortColumn, 0);
+    }
+
+    private boolean orderDescending() {
+        return sortColumn >= 0 && !ascending;
+    }
+
+    private boolean isResultInIdOrder() {
+        return resultColumn == 0 && !resultDescending;
+    }
+
+    // Whether every id of the result on screen is known and no other filter is on its way
+    public boolean isComplete() {
+        return ended && resultFilter == filterRequest;
+    }
+
+    // Whether insertAsset(), updateAsset() and removeAsset() can keep the result right: it must
+    // be complete and not being reordered, and outside id order the store must hold the rows to
+    // place them by
+    public boolean canApplyChanges() {
+        return isComplete() && !sorting && (isResultInIdOrder() || store.isLoaded());
+    }
+
+    // Fetches the first page of the requested filter in the current order; a newer one cancels it
+    private void submitFirstPage(String description, Consumer<SQLException> onError) {
+        String where = requestedWhere;
+        List<Object> pageParams = requestedParams;
+        int request = filterRequest;
+        int column = orderColumn();
+        boolean descending = orderDescending();
+
+        queryExecutor.submitLatest(RELOAD_LANE, description,
+                ctx -> fetchRows(ctx, where, pageParams, column, descending, null, 0, 0), page -> {
+            if (request != filterRequest) {
+                return;
+            }
+            boolean complete = page.ids.length < PAGE_SIZE;
+            replaceResult(where, pageParams, request, column, descending, page.ids, complete, page.pageEndKeys);
+            page.values.forEach(rows::put);
+            if (!complete && isResultInIdOrder()) {
+                submitIdScan();
+            }
+        }, e -> {
+            if (request == filterRequest && resultFilter != request) {
+                // The rows on screen stay; so does their filter for the next sort
+                queryExecutor.cancel(TOTALS_LANE);
+                requestedWhere = whereClause;
+                requestedParams = params;
+                requestedCount = resultCount;
+                resultFilter = ++filterRequest;
+            }
+            onError.accept(e);
+        });
+    }
+
+    private void replaceResult(String whereClause, List<Object> params, int request, int column, boolean descending,
+                               int[] ids, boolean complete, Object[] keys) {
+        queryExecutor.cancel(IDS_LANE);
+        this.whereClause = whereClause;
+        this.params = params;
+        this.resultIds = ids;
+        this.knownRows = ids.length;
+        this.ended = complete;
+        this.resultCount = complete ? ids.length : requestedCount;
+        this.rowCount = complete ? ids.length : Math.max(ids.length, requestedCount);
+        this.resultFilter = request;
+        this.resultColumn = column;
+        this.resultDescending = descending;
+        this.pageKeys = keys;
+        sorting = false;
+        generation++;
+        extending = false;
+        rows.clear();
+        pendingPages.clear();
+        fireTableDataChanged();
+    }
+
+    // In id order the rest of the id list is read in the background, a chunk at a time, so any
+    // page can then be fetched as an id range
+    private void submitIdScan() {
+        int requestGeneration = generation;
+        String sql = SqlStatements.assetIdScan(whereClause);
+        List<Object> scanParams = new ArrayList<>(params.size() + 1);
+        scanParams.add(resultIds[knownRows - 1]);
+        scanParams.addAll(params);
+
+        queryExecutor.submitLatest(IDS_LANE, "Loading asset ids", ctx -> {
+            try (PreparedStatement stmt = ctx.prepare(sql)) {
+                stmt.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream, so chunks arrive as read
+                bind(stmt, scanParams, 1);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int[] chunk = new int[ID_CHUNK_SIZE];
+                    int count = 0;
+                    int total = 0;
+                    while (rs.next()) {
+                        chunk[count++] = rs.getInt(1);
+                        if (count == chunk.length) {
+                            int[] ids = chunk;
+                            ctx.publish(read -> appendIds(requestGeneration, read, false), ids);
+                            chunk = new int[ID_CHUNK_SIZE];
+                            total += count;
+                            count = 0;
+                            ctx.progress(total);
+                        }
+                    }
+                    ctx.addRows(total + count);
+                    return Arrays.copyOf(chunk, count);
+                }
+            }
+        }, rest -> appendIds(requestGeneration, rest, true), Throwable::printStackTrace);
+    }
+
+    private void appendIds(int requestGeneration, int[] ids, boolean last) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        // A page skipped ahead to may have added some of them already
+        int from = Arrays.binarySearch(ids, resultIds[knownRows - 1] + 1);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int oldKnown = knownRows;
+        addKnownIds(ids, from, ids.length - from);
+        ended |= last;
+        knownRowsChanged(oldKnown);
+    }
+
+    private void addKnownIds(int[] ids, int from, int count) {
+        if (knownRows + count > resultIds.length) {
+            resultIds = Arrays.copyOf(resultIds, Math.max(knownRows + count, knownRows + (knownRows >> 1)));
+        }
+        System.arraycopy(ids, from, resultIds, knownRows, count);
+        knownRows += count;
+    }
+
+    // Brings rowCount up to date with knownRows and the count, and repaints the rows whose ids
+    // have just become known, so their pages get fetched
+    private void knownRowsChanged(int oldKnown) {
+        int oldCount = rowCount;
+        rowCount = ended ? knownRows : Math.max(knownRows, resultCount);
+        if (rowCount > oldCount) {
+            fireTableRowsInserted(oldCount, rowCount - 1);
+        } else if (rowCount < oldCount) {
+            fireTableRowsDeleted(rowCount, oldCount - 1);
+        }
+        int updated = Math.min(knownRows, Math.min(oldCount, rowCount));
+        if (oldKnown < updated) {
+            fireTableRowsUpdated(oldKnown, updated - 1);
+        }
+    }
+
+    public String getWhereClause() { return whereClause; }
+    public List<Object> getParams() { return params; }
+
+    // Id of the asset shown in the given row, or null while it is still being read
+    public Integer getAssetIdAt(int row) {
+        return row >= 0 && row < knownRows ? resultIds[row] : null;
+    }
+
+    public boolean containsAsset(int assetId) {
+        return indexOf(assetId) >= 0;
+    }
+
+    // Adds the row for an asset that now matches the current filter, at its position in the
+    // current order
+    public void insertAsset(FixedAssetsRegistry.Asset asset) {
+        if (indexOf(asset.getId()) >= 0) {
+            updateAsset(asset);
+            return;
+        }
+        int row = insertionPoint(asset.getId());
+        addAt(row, asset.getId());
+        rows.put(asset.getId(), asset.toTableRow());
+        fireTableRowsInserted(row, row);
+    }
+
+    // Refreshes the asset's row; sorted on a column, the row moves if its key changed
+    public void updateAsset(FixedAssetsRegistry.Asset asset) {
+        int row = indexOf(asset.getId());
+        if (row < 0) {
+            return;
+        }
+        rows.put(asset.getId(), asset.toTableRow());
+        if (!isResultInIdOrder()) {
+            removeAt(row);
+            int target = insertionPoint(asset.getId());
+            addAt(target, asset.getId());
+            if (target != row) {
+                fireTableRowsDeleted(row, row);
+                fireTableRowsInserted(target, target);
+                return;
+            }
+        }
+        fireTableRowsUpdated(row, row);
+    }
+
+    public void removeAsset(int assetId) {
+        int row = indexOf(assetId);
+        if (row >= 0) {
+            removeAt(row);
+            rows.remove(assetId);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    private void addAt(int row, int assetId) {
+        if (rowCount == resultIds.length) {
+            resultIds = Arrays.copyOf(resultIds, Math.max(16, rowCount + (rowCount >> 1)));
+        }
+        System.arraycopy(resultIds, row, resultIds, row + 1, rowCount - row);
+        resultIds[row] = assetId;
+        rowCount++;
+        knownRows++;
+        pageKeys = new Object[0]; // Rows shifted off the keys; pages come from the store or by id
+    }
+
+    private void removeAt(int row) {
+        System.arraycopy(resultIds, row + 1, resultIds, row, rowCount - row - 1);
+        rowCount--;
+        knownRows--;
+        pageKeys = new Object[0];
+    }
+
+    // The row of the asset among the known ids, or -1 if not shown
+    private int indexOf(int assetId) {
+        if (isResultInIdOrder()) {
+            return Math.max(Arrays.binarySearch(resultIds, 0, knownRows, assetId), -1);
+        }
+        for (int row = 0; row < knownRows; row++) {
+            if (resultIds[row] == assetId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // Where an asset not shown yet goes in the result's order: by id, or by the store's copy of
+    // its row
+    private int insertionPoint(int assetId) {
+        if (isResultInIdOrder()) {
+            return -Arrays.binarySearch(resultIds, 0, rowCount, assetId) - 1;
+        }
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (store.compareIds(resultIds[middle], assetId, resultColumn, resultDescending) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column != sortColumn) {
+            return COLUMN_NAMES[column];
+        }
+        return COLUMN_NAMES[column] + (ascending ? " \u25B2" : " \u25BC");
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Make table read-only
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (row >= knownRows) {
+            requestPage(row / PAGE_SIZE);
+            return column == 1 ? "Loading..." : null;
+        }
+        Object[] values = rows.get(resultIds[row]);
+        if (values == null && store.isLoaded()) {
+            FixedAssetsRegistry.Asset asset = store.getAsset(resultIds[row]);
+            if (asset != null) {
+                values = asset.toTableRow();
+                rows.put(asset.getId(), values);
+            }
+        }
+        if (values == null) {
+            requestPage(row / PAGE_SIZE);
+            return column == 1 ? "Loading..." : null;
+        }
+        if (values == MISSING_ROW) {
+            return column == 0 ? resultIds[row] : column == 1 ? "(deleted)" : null;
+        }
+        return values[column];
+    }
+
+    // Pages are fixed slices of the result. A page whose ids are known is, in id order, the id
+    // range of its slice; sorted, it is the next PAGE_SIZE rows after the key of the page before,
+    // and rows edits shifted in from elsewhere are fetched by id, all in one query. A page past
+    // the known ids is read after the last known row (extendTo()). Inserts and deletes shift rows
+    // between slices, which only means a page may fetch a few rows that are cached already.
+    private void requestPage(int pageIndex) {
+        int first = pageIndex * PAGE_SIZE;
+        if (first >= rowCount || !pendingPages.add(pageIndex)) {
+            return;
+        }
+        if (Math.min(first + PAGE_SIZE, rowCount) > knownRows) {
+            extendTo(pageIndex);
+            return;
+        }
+
+        int requestGeneration = generation;
+        int[] pageIds = Arrays.copyOfRange(resultIds, first, Math.min(first + PAGE_SIZE, rowCount));
+        boolean sorted = !isResultInIdOrder();
+        String sql;
+        List<Object> pageParams = new ArrayList<>(params.size() + 4);
+        if (!sorted) {
+            sql = SqlStatements.assetRange(whereClause);
+            pageParams.add(pageIds[0]);
+            pageParams.add(pageIds[pageIds.length - 1]);
+            pageParams.addAll(params);
+        } else if (pageIndex == 0) {
+            sql = SqlStatements.sortedAssetFirstPage(whereClause, SqlStatements.ASSET_SORT_KEYS[resultColumn],
+                    resultDescending);
+            pageParams.addAll(params);
+            pageParams.add(PAGE_SIZE);
+        } else if (pageIndex <= pageKeys.length && pageKeys[pageIndex - 1] != null) {
+            sql = SqlStatements.sortedAssetPage(whereClause, SqlStatements.ASSET_SORT_KEYS[resultColumn],
+                    resultDescending);
+            addSeek(pageParams, pageKeys[pageIndex - 1], resultIds[first - 1]);
+            pageParams.addAll(params);
+            pageParams.add(PAGE_SIZE);
+        } else {
+            sql = null; // Ordered in memory: only what the store lacks is fetched, by id
+        }
+
+        queryExecutor.submit("Fetching rows", ctx -> {
+            Map<Integer, Object[]> fetched = new HashMap<>(pageIds.length * 2);
+            if (sql != null) {
+                fetch(ctx, sql, pageParams, fetched);
+            }
+            if (sorted) {
+                List<Object> missing = new ArrayList<>();
+                for (int id : pageIds) {
+                    if (!fetched.containsKey(id)) {
+                        missing.add(id);
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    // Padded to a power of two with a repeated id, for the statement cache
+                    int placeholders = Integer.highestOneBit(missing.size() * 2 - 1);
+                    while (missing.size() < placeholders) {
+                        missing.add(missing.get(0));
+                    }
+                    fetch(ctx, SqlStatements.assetsByIds(placeholders), missing, fetched);
+                }
+            }
+            ctx.addRows(fetched.size());
+            return fetched;
+        }, fetched -> {
+            if (requestGeneration != generation) {
+                return; // Result belongs to a filter that has since been replaced
+            }
+            pendingPages.remove(pageIndex);
+            // Rows added by others since the ids were read fall in the range too; only ours are
+            // kept, and a row applied in place while the page was in flight wins
+            for (int id : pageIds) {
+                Object[] values = fetched.get(id);
+                rows.putIfAbsent(id, values != null ? values : MISSING_ROW);
+            }
+            if (first < rowCount) {
+                fireTableRowsUpdated(first, Math.min(first + PAGE_SIZE, rowCount) - 1);
+            }
+        }, e -> {
+            if (requestGeneration == generation) {
+                pendingPages.remove(pageIndex);
+            }
+            e.printStackTrace();
+        });
+    }
+
+    // Reads the page past the known ids: the ids and keys of any rows between the last known one
+    // and the page, then the page itself, in one task. One such read runs at a time, as each
+    // continues where the last stopped; pages asked for meanwhile are asked for again when the
+    // rows they wait on are repainted.
+    private void extendTo(int pageIndex) {
+        if (extending) {
+            pendingPages.remove(pageIndex);
+            return;
+        }
+        extending = true;
+        int requestGeneration = generation;
+        int start = knownRows; // A whole number of pages: a short page would have ended the result
+        int skip = pageIndex * PAGE_SIZE - start;
+        int afterId = resultIds[start - 1];
+        Object afterKey = resultColumn == 0 ? (Object) afterId : pageKeys[start / PAGE_SIZE - 1];
+        String where = whereClause;
+        List<Object> pageParams = params;
+        int column = resultColumn;
+        boolean descending = resultDescending;
+
+        queryExecutor.submit("Fetching rows",
+                ctx -> fetchRows(ctx, where, pageParams, column, descending, afterKey, afterId, skip), page -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            extending = false;
+            pendingPages.remove(pageIndex);
+            page.values.forEach(rows::putIfAbsent);
+            if (start != knownRows) {
+                // The background id list got here first; the rows just need repainting
+                int to = Math.min(start + page.ids.length, rowCount);
+                if (start < to) {
+                    fireTableRowsUpdated(start, to - 1);
+                }
+                return;
+            }
+            addKnownIds(page.ids, 0, page.ids.length);
+            int firstPage = start / PAGE_SIZE;
+            if (pageKeys.length < firstPage + page.pageEndKeys.length) {
+                pageKeys = Arrays.copyOf(pageKeys, Math.max(firstPage + page.pageEndKeys.length, pageKeys.length * 2));
+            }
+            System.arraycopy(page.pageEndKeys, 0, pageKeys, firstPage, page.pageEndKeys.length);
+            ended |= page.ids.length < skip + PAGE_SIZE;
+            knownRowsChanged(start);
+        }, e -> {
+            if (requestGeneration == generation) {
+                extending = false;
+                pendingPages.remove(pageIndex);
+            }
+            e.printStackTrace();
+        });
+    }
+
+    // Up to skip + PAGE_SIZE rows in the given order, after the row with the given key and id
+    // (from the top when afterKey is null); only the last PAGE_SIZE are read in full
+    private static Page fetchRows(QueryExecutor.QueryContext ctx, String whereClause, List<Object> params,
+                                  int column, boolean descending, Object afterKey, int afterId,
+                                  int skip) throws SQLException {
+        String sortKey = SqlStatements.ASSET_SORT_KEYS[column];
+        int[] ids = new int[skip + PAGE_SIZE];
+        Object[] pageEndKeys = new Object[ids.length / PAGE_SIZE];
+        Map<Integer, Object[]> values = new HashMap<>(PAGE_SIZE * 2);
+        int count = 0;
+
+        if (skip > 0) {
+            List<Object> skipParams = new ArrayList<>(params.size() + 4);
+            addSeek(skipParams, afterKey, afterId);
+            skipParams.addAll(params);
+            skipParams.add(skip);
+            try (PreparedStatement stmt = ctx.prepare(SqlStatements.sortedAssetIds(whereClause, sortKey, descending))) {
+                bind(stmt, skipParams, 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids[count] = rs.getInt(1);
+                        // Typed as the column is (BigDecimal, Date, String), so it binds back as one
+                        afterKey = rs.getObject(2);
+                        afterId = ids[count];
+                        if (++count % PAGE_SIZE == 0) {
+                            pageEndKeys[count / PAGE_SIZE - 1] = afterKey;
+                        }
+                    }
+                }
+            }
+            if (count < skip) {
+                ctx.addRows(count);
+                return new Page(Arrays.copyOf(ids, count), values, pageEndKeys);
+            }
+        }
+
+        List<Object> pageParams = new ArrayList<>(params.size() + 4);
+        String sql;
+        if (afterKey == null) {
+            sql = SqlStatements.sortedAssetFirstPage(whereClause, sortKey, descending);
+        } else {
+            sql = SqlStatements.sortedAssetPage(whereClause, sortKey, descending);
+            addSeek(pageParams, afterKey, afterId);
+        }
+        pageParams.addAll(params);
+        pageParams.add(PAGE_SIZE);
+        try (PreparedStatement stmt = ctx.prepare(sql)) {
+            bind(stmt, pageParams, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                AssetRowMapper mapper = new AssetRowMapper(rs);
+                int sortKeyColumn = rs.findColumn("sort_key");
+                while (rs.next()) {
+                    FixedAssetsRegistry.Asset asset = mapper.map();
+                    ids[count] = asset.getId();
+                    values.put(asset.getId(), asset.toTableRow());
+                    if (++count % PAGE_SIZE == 0) {
+                        pageEndKeys[count / PAGE_SIZE - 1] = rs.getObject(sortKeyColumn);
+                    }
+                }
+            }
+        }
+        ctx.addRows(count);
+        return new Page(Arrays.copyOf(ids, count), values, pageEndKeys);
+    }
+
+    // Count and total cost of the matching assets
+    private static FixedAssetsRegistry.AssetTotals readTotals(QueryExecutor.QueryContext ctx, String whereClause,
+                                                              List<Object> params) throws SQLException {
+        try (PreparedStatement stmt = ctx.prepare(SqlStatements.assetTotals(whereClause))) {
+            bind(stmt, params, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new FixedAssetsRegistry.AssetTotals(rs.getInt(1), rs.getDouble(2));
+            }
+        }
+    }
+
+    // The keyset parameters of the sorted page queries: the key twice, then the id
+    private static void addSeek(List<Object> params, Object key, int id) {
+        params.add(key);
+        params.add(key);
+        params.add(id);
+    }
+
+    private static void fetch(QueryExecutor.QueryContext ctx, String sql, List<Object> params,
+                              Map<Integer, Object[]> fetched) throws SQLException {
+        try (PreparedStatement stmt = ctx.prepare(sql)) {
+            bind(stmt, params, 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                AssetRowMapper mapper = new AssetRowMapper(rs);
+                while (rs.next()) {
+                    FixedAssetsRegistry.Asset asset = mapper.map();
+                    fetched.put(asset.getId(), asset.toTableRow());
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, List<Object> params, int firstIndex) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(firstIndex + i, params.get(i));
+        }
+    }
+}
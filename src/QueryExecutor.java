@@ -0,0 +1,239 @@
+import javax.swing.*;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Runs JDBC work on virtual threads so the Event Dispatch Thread never waits on MySQL.
+// Each query borrows its own connection from the DataSource for as long as it runs.
+// Results, chunks and progress are handed back to the EDT; a query submitted to a lane
+// supersedes (and cancels on the server) whatever is still running in that lane.
+class QueryExecutor {
+
+    interface Query<T> {
+        T run(QueryContext context) throws SQLException;
+    }
+
+    interface ProgressListener {
+        void queryStarted(String description);
+        void queryProgress(String description, int rows);
+        void queryFinished(String description);
+    }
+
+    // Handed to a running query: tracks the statement in flight so it can be cancelled
+    // and pushes chunks of results to the EDT while the query is still streaming.
+    static class QueryContext {
+        private final String description;
+        private final ProgressListener listener;
+        private volatile Connection connection;
+        private volatile Statement current;
+        private volatile boolean cancelled;
+        private long rows;
+
+        QueryContext(String description, ProgressListener listener) {
+            this.description = description;
+            this.listener = listener;
+        }
+
+        void attach(Connection connection) {
+            this.connection = connection;
+        }
+
+        public Connection getConnection() { return connection; }
+        public boolean isCancelled() { return cancelled; }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            checkCancelled();
+            PreparedStatement stmt = connection.prepareStatement(sql);
+            current = stmt;
+            return stmt;
+        }
+
+        public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            checkCancelled();
+            PreparedStatement stmt = connection.prepareStatement(sql, autoGeneratedKeys);
+            current = stmt;
+            return stmt;
+        }
+
+        public <C> void publish(Consumer<C> sink, C chunk) {
+            if (!cancelled) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!cancelled) sink.accept(chunk);
+                });
+            }
+        }
+
+        public void progress(int rows) {
+            if (!cancelled && listener != null) {
+                SwingUtilities.invokeLater(() -> listener.queryProgress(description, rows));
+            }
+        }
+
+        // Counts rows read or written, for QueryMetrics
+        public void addRows(long count) {
+            rows += count;
+        }
+
+        public long getRows() { return rows; }
+
+        public void checkCancelled() throws SQLException {
+            if (cancelled) {
+                throw new SQLException("Query cancelled: " + description);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Statement stmt = current;
+            if (stmt != null) {
+                try {
+                    stmt.cancel();
+                } catch (SQLException e) {
+                    // Statement already finished or closed; nothing left to cancel
+                }
+            }
+        }
+    }
+
+    // Handle for a submitted query
+    static class QueryHandle {
+        private final QueryContext context;
+
+        QueryHandle(QueryContext context) {
+            this.context = context;
+        }
+
+        public void cancel() { context.cancel(); }
+        public boolean isCancelled() { return context.isCancelled(); }
+    }
+
+    static final int CHUNK_SIZE = 500;
+
+    private final DataSource dataSource;
+    private final ProgressListener listener;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, QueryHandle> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final QueryMetrics metrics;
+
+    QueryExecutor(DataSource dataSource, ProgressListener listener) {
+        this(dataSource, listener, null);
+    }
+
+    // Every query is timed into the metrics, when given, under its description
+    QueryExecutor(DataSource dataSource, ProgressListener listener, QueryMetrics metrics) {
+        this.dataSource = dataSource;
+        this.listener = listener;
+        this.metrics = metrics;
+    }
+
+    // Runs a query that must complete, e.g. inserts, updates and deletes.
+    public <T> QueryHandle submit(String description, Query<T> query,
+                                  Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        return start(null, description, query, onSuccess, onError, true);
+    }
+
+    // Runs a query in a lane, cancelling the previous query of the same lane if it is still running.
+    public <T> QueryHandle submitLatest(String lane, String description, Query<T> query,
+                                        Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        return start(lane, description, query, onSuccess, onError, true);
+    }
+
+    // Runs work that needs no connection, e.g. rebuilding an in-memory structure, on the same
+    // threads and with the same progress reporting; it works while MySQL is unreachable too
+    public <T> QueryHandle submitLocal(String description, Query<T> query,
+                                       Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        return start(null, description, query, onSuccess, onError, false);
+    }
+
+    // Same, in a lane like submitLatest(), so it replaces or is replaced by queries of that lane
+    public <T> QueryHandle submitLatestLocal(String lane, String description, Query<T> query,
+                                             Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        return start(lane, description, query, onSuccess, onError, false);
+    }
+
+    public void cancel(String lane) {
+        QueryHandle previous = lanes.remove(lane);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public boolean isBusy() {
+        return running.get() > 0;
+    }
+
+    private <T> QueryHandle start(String lane, String description, Query<T> query,
+                                  Consumer<T> onSuccess, Consumer<SQLException> onError, boolean connected) {
+        QueryContext context = new QueryContext(description, listener);
+        QueryHandle handle = new QueryHandle(context);
+        if (lane != null) {
+            QueryHandle previous = lanes.put(lane, handle);
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+
+        running.incrementAndGet();
+        if (listener != null) {
+            listener.queryStarted(description);
+        }
+
+        executor.execute(() -> {
+            T result = null;
+            SQLException failure = null;
+            long start = System.nanoTime();
+            QueryMetrics.setCurrentOperation(description);
+            try (Connection connection = connected ? dataSource.getConnection() : null) {
+                context.attach(connection);
+                result = query.run(context);
+            } catch (SQLException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new SQLException(e.getMessage(), e);
+            } finally {
+                QueryMetrics.setCurrentOperation(null);
+                if (lane != null) {
+                    lanes.remove(lane, handle);
+                }
+            }
+            // A query cancelled because it was superseded is not an error
+            if (metrics != null) {
+                metrics.record(description, System.nanoTime() - start, context.getRows(),
+                        failure != null && !context.isCancelled());
+            }
+
+            T finalResult = result;
+            SQLException finalFailure = failure;
+            SwingUtilities.invokeLater(() -> {
+                running.decrementAndGet();
+                if (listener != null) {
+                    listener.queryFinished(description);
+                }
+                if (handle.isCancelled()) {
+                    return;
+                }
+                if (finalFailure != null) {
+                    if (onError != null) onError.accept(finalFailure);
+                } else if (onSuccess != null) {
+                    onSuccess.accept(finalResult);
+                }
+            });
+        });
+        return handle;
+    }
+
+    public void shutdown() {
+        lanes.values().forEach(QueryHandle::cancel);
+        lanes.clear();
+        executor.shutdownNow();
+    }
+}
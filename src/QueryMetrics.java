@@ -0,0 +1,312 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Where database time goes. QueryExecutor records every query it runs under its description
+// ("Filtering assets", "Exporting assets", ...): a latency histogram, rows read or written and
+// failures. StatementCache reports each statement execution that takes longer than the
+// slow-query threshold, with its SQL and bound parameters. Everything is published as JMX
+// MBeans (domain "FixedAssetsRegistry", e.g. in JConsole) and summarized by logLine().
+class QueryMetrics {
+    static final String DOMAIN = "FixedAssetsRegistry";
+    static final long DEFAULT_SLOW_QUERY_MILLIS = 500;
+    static final int SLOW_QUERY_LOG_SIZE = 100;
+    static final int MAX_LOGGED_PARAM_LENGTH = 100;
+    // Bucket i counts runs faster than 2^i ms; the last bucket counts everything slower
+    static final int BUCKETS = 18;
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    // The operation running on this thread, so a slow statement can say what it was part of
+    private static final ThreadLocal<String> currentOperation = new ThreadLocal<>();
+
+    // JMX view of one operation
+    public interface OperationMBean {
+        long getCount();
+        long getErrorCount();
+        long getRowCount();
+        double getMeanMillis();
+        double getMaxMillis();
+        double getP50Millis();
+        double getP95Millis();
+        double getP99Millis();
+        String getHistogram();
+    }
+
+    // JMX view of the whole registry
+    public interface QueryMetricsMBean {
+        long getSlowQueryThresholdMillis();
+        void setSlowQueryThresholdMillis(long millis);
+        long getSlowQueryCount();
+        String[] getSlowQueries();
+        String dumpSlowQueries();
+        void reset();
+    }
+
+    // Counters of one operation; updated lock-free from any number of query threads
+    static class Operation implements OperationMBean {
+        final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private long loggedCount; // Count at the last log line, guarded by the QueryMetrics
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long rowCount, boolean failed) {
+            count.increment();
+            if (failed) {
+                errors.increment();
+            }
+            rows.add(rowCount);
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(bucketOf(nanos));
+        }
+
+        void reset() {
+            count.reset();
+            errors.reset();
+            rows.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        public long getCount() { return count.sum(); }
+        public long getErrorCount() { return errors.sum(); }
+        public long getRowCount() { return rows.sum(); }
+        public double getMaxMillis() { return maxNanos.get() / 1_000_000.0; }
+        public double getP50Millis() { return percentile(0.50); }
+        public double getP95Millis() { return percentile(0.95); }
+        public double getP99Millis() { return percentile(0.99); }
+
+        public double getMeanMillis() {
+            long runs = count.sum();
+            return runs == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / runs;
+        }
+
+        // The upper bound of the bucket holding the given fraction of runs; never above the
+        // slowest run, so a single fast query does not report a whole bucket's width
+        double percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0.0;
+            }
+            long wanted = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= wanted) {
+                    return Math.min(1L << i, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        // Non-empty buckets, e.g. "<1 ms: 12, <4 ms: 3, >=65536 ms: 1"
+        public String getHistogram() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < BUCKETS; i++) {
+                long runs = buckets.get(i);
+                if (runs == 0) continue;
+                if (text.length() > 0) text.append(", ");
+                text.append(i < BUCKETS - 1 ? "<" + (1L << i) : ">=" + (1L << (BUCKETS - 2))).append(" ms: ").append(runs);
+            }
+            return text.toString();
+        }
+
+        private static int bucketOf(long nanos) {
+            long millis = nanos / 1_000_000;
+            int bucket = 64 - Long.numberOfLeadingZeros(millis); // 0 ms -> 0, 1 ms -> 1, 2-3 ms -> 2, ...
+            return Math.min(bucket, BUCKETS - 1);
+        }
+    }
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final Deque<String> slowQueries = new ArrayDeque<>();
+    private final LongAdder slowQueryCount = new LongAdder();
+    private volatile long slowQueryNanos;
+    private volatile boolean registered;
+
+    QueryMetrics(long slowQueryMillis) {
+        this.slowQueryNanos = slowQueryMillis * 1_000_000;
+    }
+
+    // Publishes the registry and every operation, including those recorded later, over JMX
+    public void register() {
+        registered = true;
+        register("type=QueryMetrics", new StandardMBean(new Registry(), QueryMetricsMBean.class, false));
+        for (Operation operation : operations.values()) {
+            registerOperation(operation);
+        }
+    }
+
+    // Times one query; called by QueryExecutor
+    public void record(String operationName, long nanos, long rows, boolean failed) {
+        operation(operationName).record(nanos, rows, failed);
+    }
+
+    public Operation operation(String name) {
+        Operation operation = operations.get(name);
+        if (operation == null) {
+            Operation created = new Operation(name);
+            operation = operations.putIfAbsent(name, created);
+            if (operation == null) {
+                operation = created;
+                if (registered) {
+                    registerOperation(created);
+                }
+            }
+        }
+        return operation;
+    }
+
+    // Marks the operation the current thread runs, for slow statements; null clears it
+    public static void setCurrentOperation(String name) {
+        if (name == null) {
+            currentOperation.remove();
+        } else {
+            currentOperation.set(name);
+        }
+    }
+
+    public long getSlowQueryNanos() {
+        return slowQueryNanos;
+    }
+
+    // Records a statement that ran past the threshold and logs it to stderr
+    public void slowQuery(String sql, List<Object> params, int batchSize, long nanos) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(LocalDateTime.now().format(TIME)).append(' ').append(nanos / 1_000_000).append(" ms");
+        String operation = currentOperation.get();
+        if (operation != null) {
+            entry.append(" [").append(operation).append(']');
+        }
+        entry.append(' ').append(sql);
+        if (batchSize > 0) {
+            entry.append(" -- batch of ").append(batchSize);
+        } else if (!params.isEmpty()) {
+            entry.append(" -- params: ");
+            appendParams(entry, params);
+        }
+
+        String line = entry.toString();
+        slowQueryCount.increment();
+        synchronized (slowQueries) {
+            if (slowQueries.size() == SLOW_QUERY_LOG_SIZE) {
+                slowQueries.removeFirst();
+            }
+            slowQueries.addLast(line);
+        }
+        System.err.println("Slow query: " + line);
+    }
+
+    // One line with the figures of each operation that ran since the previous line, or null
+    // when none did
+    public synchronized String logLine() {
+        List<String> parts = new ArrayList<>();
+        for (Operation operation : operations.values()) {
+            long runs = operation.getCount();
+            if (runs == operation.loggedCount) continue;
+            operation.loggedCount = runs;
+            parts.add(String.format("%s n=%d err=%d rows=%d mean=%.1fms p95=%.0fms max=%.0fms",
+                    operation.name, runs, operation.getErrorCount(), operation.getRowCount(),
+                    operation.getMeanMillis(), operation.getP95Millis(), operation.getMaxMillis()));
+        }
+        return parts.isEmpty() ? null : "Query metrics: " + String.join("; ", parts);
+    }
+
+    private static void appendParams(StringBuilder entry, List<Object> params) {
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) entry.append(", ");
+            Object param = params.get(i);
+            if (param == null) {
+                entry.append("NULL");
+            } else if (param instanceof String text) {
+                entry.append('\'');
+                if (text.length() > MAX_LOGGED_PARAM_LENGTH) {
+                    entry.append(text, 0, MAX_LOGGED_PARAM_LENGTH).append("...");
+                } else {
+                    entry.append(text);
+                }
+                entry.append('\'');
+            } else {
+                entry.append(param);
+            }
+        }
+    }
+
+    private void registerOperation(Operation operation) {
+        register("type=Operation,name=" + ObjectName.quote(operation.name),
+                new StandardMBean(operation, OperationMBean.class, false));
+    }
+
+    // Key properties are e.g. "type=QueryMetrics"
+    static void register(String properties, StandardMBean bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":" + properties);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName); // A previous window's
+            }
+            server.registerMBean(bean, objectName);
+        } catch (JMException e) {
+            System.err.println("Could not publish metrics over JMX: " + e.getMessage());
+        }
+    }
+
+    // The registry-wide MBean
+    private class Registry implements QueryMetricsMBean {
+        public long getSlowQueryThresholdMillis() { return slowQueryNanos / 1_000_000; }
+        public void setSlowQueryThresholdMillis(long millis) { slowQueryNanos = millis * 1_000_000; }
+        public long getSlowQueryCount() { return slowQueryCount.sum(); }
+
+        public String[] getSlowQueries() {
+            synchronized (slowQueries) {
+                return slowQueries.toArray(new String[0]);
+            }
+        }
+
+        public String dumpSlowQueries() {
+            return String.join("\n", getSlowQueries());
+        }
+
+        public void reset() {
+            for (Operation operation : operations.values()) {
+                operation.reset();
+            }
+            synchronized (QueryMetrics.this) {
+                for (Operation operation : operations.values()) {
+                    operation.loggedCount = 0;
+                }
+            }
+            synchronized (slowQueries) {
+                slowQueries.clear();
+            }
+            slowQueryCount.reset();
+        }
+    }
+}
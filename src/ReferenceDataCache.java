@@ -0,0 +1,166 @@
+import javax.sql.DataSource;
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Categories, locations and statuses, loaded once at startup and shared by the main window and
+// every asset dialog. Once the TTL has passed (or after invalidate()) readers keep getting the
+// current arrays while a background reload fetches fresh ones; listeners hear about the swap.
+// Reloads only start while the application is connected (setConnected()), and one that fails
+// is not tried again for RETRY_MILLIS. The arrays are shared, so callers must never modify them.
+class ReferenceDataCache {
+    static final long RETRY_MILLIS = 60_000;
+
+    // Read-only combo box model over one of the cached arrays, optionally preceded by an
+    // "All ..." entry. Holds the array it was built with; build a new model after a reload.
+    static class ComboModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+        private final String allItem;
+        private final String[] items;
+        private Object selected;
+
+        ComboModel(String allItem, String[] items) {
+            this.allItem = allItem;
+            this.items = items;
+            this.selected = allItem != null ? allItem : (items.length > 0 ? items[0] : null);
+        }
+
+        @Override
+        public int getSize() {
+            return items.length + (allItem != null ? 1 : 0);
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            if (allItem != null) {
+                return index == 0 ? allItem : items[index - 1];
+            }
+            return items[index];
+        }
+
+        @Override
+        public void setSelectedItem(Object item) {
+            if (!Objects.equals(selected, item)) {
+                selected = item;
+                fireContentsChanged(this, -1, -1);
+            }
+        }
+
+        @Override
+        public Object getSelectedItem() {
+            return selected;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final long ttlMillis;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private volatile String[] categories = new String[0];
+    private volatile String[] locations = new String[0];
+    private volatile String[] statuses = new String[0];
+    private volatile long loadedAt;
+    private volatile long failedAt; // When the last background reload failed, 0 if it did not
+    private volatile boolean connected;
+
+    ReferenceDataCache(DataSource dataSource, long ttlMillis) {
+        this.dataSource = dataSource;
+        this.ttlMillis = ttlMillis;
+    }
+
+    // Loads all three lists over one connection, blocking the caller
+    public void load() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            String[] newCategories = loadNames(connection, SqlStatements.SELECT_CATEGORY_NAMES);
+            String[] newLocations = loadNames(connection, SqlStatements.SELECT_LOCATION_NAMES);
+            String[] newStatuses = loadNames(connection, SqlStatements.SELECT_STATUS_NAMES);
+            categories = newCategories;
+            locations = newLocations;
+            statuses = newStatuses;
+            loadedAt = System.currentTimeMillis();
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    // Serves lists saved earlier (e.g. in a local snapshot) until the next load or reload
+    public void restore(String[] categories, String[] locations, String[] statuses) {
+        this.categories = categories;
+        this.locations = locations;
+        this.statuses = statuses;
+        loadedAt = System.currentTimeMillis();
+        listeners.forEach(Runnable::run);
+    }
+
+    private static String[] loadNames(Connection connection, String sql) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    public String[] getCategories() {
+        reloadIfStale();
+        return categories;
+    }
+
+    public String[] getLocations() {
+        reloadIfStale();
+        return locations;
+    }
+
+    public String[] getStatuses() {
+        reloadIfStale();
+        return statuses;
+    }
+
+    // Forces a reload, e.g. after lookup rows were edited outside the application; it starts at
+    // once if connected, even soon after a failed one
+    public void invalidate() {
+        loadedAt = 0;
+        failedAt = 0;
+        reloadIfStale();
+    }
+
+    // Whether MySQL can be reached; until it is said to be, the lists loaded or restored last are
+    // served however old they are
+    public void setConnected(boolean connected) {
+        this.connected = connected;
+    }
+
+    // Listeners run on the reloading thread after new arrays are in place
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    private void reloadIfStale() {
+        long now = System.currentTimeMillis();
+        if (!connected || now - loadedAt < ttlMillis || now - failedAt < RETRY_MILLIS
+                || !reloading.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("reference-data-reload").start(() -> {
+            try {
+                load();
+                failedAt = 0;
+            } catch (SQLException e) {
+                // Keep serving the previous lists; a read after RETRY_MILLIS tries again
+                failedAt = System.currentTimeMillis();
+                e.printStackTrace();
+            } finally {
+                reloading.set(false);
+            }
+        });
+    }
+}
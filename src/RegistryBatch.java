@@ -0,0 +1,344 @@
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs the reports and the CSV export without a window, e.g. from cron on a server with no
+// display. Everything is read over one connection with streaming cursors, straight from MySQL
+// rather than through the in-memory store, and written row by row to a file or standard
+// output. "serve" instead loads the registry into memory and answers AssetApiServer requests
+// from it until stopped, and "migrate" only applies SchemaMigrator's pending migrations. The
+// other commands never change the schema: they fail unless it is up to date. Connection
+// settings default to the window's and can be overridden with the ASSET_DB_URL, ASSET_DB_USER
+// and ASSET_DB_PASSWORD environment variables. Exits with 0 on success, 1 when the database or
+// the output fails (a partial output file is deleted) and 2 on bad arguments.
+final class RegistryBatch {
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+    static final int DEFAULT_API_PORT = 8085;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java RegistryBatch <summary|depreciation|export> [options]",
+            "       java RegistryBatch serve [--port N]",
+            "       java RegistryBatch migrate",
+            "",
+            "  --output FILE      Write to FILE instead of standard output (\"-\"); .gz compresses",
+            "  --format text|csv  Report layout; defaults to csv for FILE names ending in .csv(.gz)",
+            "  --search TEXT      Only assets whose name, description or serial number contains TEXT",
+            "  --category NAME    Only assets in this category",
+            "  --status NAME      Only assets with this status",
+            "",
+            "depreciation only:",
+            "  --method NAME      straight-line (default), declining-balance or sum-of-years-digits",
+            "  --as-of DATE       Book values on DATE (YYYY-MM-DD); defaults to today",
+            "  --years N          Also project N anniversaries of the as-of date (0-30, default 5)",
+            "",
+            "serve only:",
+            "  --port N           Port of the read-only HTTP API (default " + DEFAULT_API_PORT + ")",
+            "",
+            "migrate brings the database schema up to date and exits; the other commands need it up to date.",
+            "",
+            "Reads ASSET_DB_URL, ASSET_DB_USER and ASSET_DB_PASSWORD from the environment when set.");
+
+    private RegistryBatch() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (options == null) {
+            System.out.println(USAGE);
+            return EXIT_OK;
+        }
+
+        String url = environment("ASSET_DB_URL", FixedAssetsRegistry.DB_URL);
+        String user = environment("ASSET_DB_USER", FixedAssetsRegistry.DB_USER);
+        String password = environment("ASSET_DB_PASSWORD", FixedAssetsRegistry.DB_PASSWORD);
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            if (options.command.equals("migrate")) {
+                int applied = SchemaMigrator.migrate(connection);
+                System.err.println(applied == 0 ? "The database schema is up to date (version "
+                        + SchemaMigrator.LATEST_VERSION + ")" : "Applied " + applied + " migration(s)");
+                return EXIT_OK;
+            }
+            SchemaMigrator.checkCurrent(connection);
+        } catch (SQLException e) {
+            System.err.println(options.command + " failed: " + e.getMessage());
+            return EXIT_FAILED;
+        }
+        if (options.command.equals("serve")) {
+            return serve(options.port, url, user, password);
+        }
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            int rows = execute(context(options.command, connection), options);
+            System.err.printf("%s: %d rows written to %s in %d ms%n", options.command, rows,
+                    options.output == null ? "standard output" : options.output,
+                    (System.nanoTime() - start) / 1_000_000);
+            return EXIT_OK;
+        } catch (SQLException | IOException e) {
+            System.err.println(options.command + " failed: " + e.getMessage());
+            return EXIT_FAILED;
+        }
+    }
+
+    // Serves the API until the process is stopped, pulling changes from MySQL on the window's
+    // schedule. While MySQL is unreachable the last loaded view keeps being served.
+    private static int serve(int port, String url, String user, String password) {
+        ColumnarAssetStore store = new ColumnarAssetStore();
+        AssetApiServer server = new AssetApiServer(store, new AssetSearchIndex(store), new AssetAggregates(store));
+        AssetChangeFeed changeFeed = new AssetChangeFeed();
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            changeFeed.reset(context("Loading assets", connection));
+            store.load(connection);
+            server.start(new InetSocketAddress(port));
+        } catch (SQLException | IOException e) {
+            System.err.println("serve failed: " + e.getMessage());
+            return EXIT_FAILED;
+        }
+        System.err.printf("Serving %d assets on port %d%n", store.size(), server.getPort());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+
+        while (true) {
+            try {
+                Thread.sleep(FixedAssetsRegistry.REFRESH_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                server.stop();
+                return EXIT_OK;
+            }
+            try (Connection connection = DriverManager.getConnection(url, user, password)) {
+                changeFeed.sync(context("Checking for changes", connection), store);
+            } catch (SQLException e) {
+                System.err.println("Sync failed, still serving the last view: " + e.getMessage());
+            }
+        }
+    }
+
+    private static QueryExecutor.QueryContext context(String description, Connection connection) {
+        QueryExecutor.QueryContext ctx = new QueryExecutor.QueryContext(description, null);
+        ctx.attach(connection);
+        return ctx;
+    }
+
+    private static int execute(QueryExecutor.QueryContext ctx, Options options) throws SQLException, IOException {
+        List<Object> params = new ArrayList<>();
+        String where = SqlStatements.assetFilter(options.search, options.category, options.status, params);
+        Path file = options.output == null ? null : Paths.get(options.output);
+
+        boolean complete = false;
+        try (Writer out = open(file)) {
+            int rows;
+            switch (options.command) {
+                case "export":
+                    rows = new AssetCsvExporter().export(ctx, SqlStatements.assetExport(where), params,
+                            new CsvWriter(out));
+                    break;
+                case "summary":
+                    ReportTableModel.Rows summary = AssetReports.newSummaryModel();
+                    AssetReports.readSummary(ctx, where, params, summary::append);
+                    rows = write(summary, options, out);
+                    break;
+                default:
+                    DepreciationEngine.Basis basis = AssetReports.readDepreciationBasis(ctx, where, params);
+                    rows = write(AssetReports.depreciationReport(new DepreciationEngine(), basis,
+                            options.method, options.asOf, options.years), options, out);
+                    break;
+            }
+            complete = true;
+            return rows;
+        } finally {
+            if (!complete && file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static int write(ReportTableModel report, Options options, Writer out) throws IOException {
+        String filter = options.describeFilter();
+        if (filter != null) {
+            List<String> notes = new ArrayList<>(report.getNotes());
+            notes.add(filter);
+            report.setNotes(notes.toArray(new String[0]));
+        }
+        if (options.csv) {
+            report.writeCsv(new CsvWriter(out));
+        } else {
+            report.writeText(out);
+        }
+        return report.getRowCount();
+    }
+
+    // The file, or standard output when it is null; standard output is flushed but left open
+    private static Writer open(Path file) throws IOException {
+        OutputStream stream = file != null ? AssetCsvExporter.open(file) : new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), AssetCsvExporter.BUFFER_SIZE);
+    }
+
+    private static String environment(String name, String fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isEmpty() ? fallback : value;
+    }
+
+    // The parsed command line
+    private static class Options {
+        String command;
+        String output;
+        boolean csv;
+        String search;
+        String category;
+        String status;
+        DepreciationEngine.Method method = DepreciationEngine.Method.STRAIGHT_LINE;
+        LocalDate asOf = LocalDate.now();
+        int years = 5;
+        int port = DEFAULT_API_PORT;
+
+        // Null when help was asked for
+        static Options parse(String[] args) {
+            if (args.length == 0) {
+                throw new IllegalArgumentException("No command given");
+            }
+            if (args[0].equals("--help") || args[0].equals("-h") || args[0].equals("help")) {
+                return null;
+            }
+            Options options = new Options();
+            options.command = args[0];
+            if (!Arrays.asList("summary", "depreciation", "export", "serve", "migrate").contains(options.command)) {
+                throw new IllegalArgumentException("Unknown command: " + options.command);
+            }
+
+            if (options.command.equals("migrate") && args.length > 1) {
+                throw new IllegalArgumentException("migrate takes no options");
+            }
+            String format = null;
+            for (int i = 1; i < args.length; i += 2) {
+                String name = args[i];
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[i + 1];
+                switch (name) {
+                    case "--output": options.output = value.equals("-") ? null : value; break;
+                    case "--format": format = value; break;
+                    case "--search": options.search = value.trim(); break;
+                    case "--category": options.category = value; break;
+                    case "--status": options.status = value; break;
+                    case "--method": options.method = parseMethod(value); break;
+                    case "--as-of": options.asOf = parseDate(value); break;
+                    case "--years": options.years = parseYears(value); break;
+                    case "--port": options.port = parsePort(value); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + name);
+                }
+                boolean depreciationOnly = name.equals("--method") || name.equals("--as-of") || name.equals("--years");
+                if (depreciationOnly && !options.command.equals("depreciation")) {
+                    throw new IllegalArgumentException(name + " only applies to the depreciation report");
+                }
+                if (name.equals("--port") != options.command.equals("serve")) {
+                    throw new IllegalArgumentException(options.command.equals("serve")
+                            ? "serve only takes --port" : "--port only applies to serve");
+                }
+            }
+
+            if (format == null) {
+                String fileName = options.output == null ? "" : options.output.toLowerCase();
+                options.csv = options.command.equals("export")
+                        || fileName.endsWith(".csv") || fileName.endsWith(".csv.gz");
+            } else if (format.equals("csv") || format.equals("text")) {
+                options.csv = format.equals("csv");
+                if (!options.csv && options.command.equals("export")) {
+                    throw new IllegalArgumentException("The export is always CSV");
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown format: " + format);
+            }
+            return options;
+        }
+
+        // A note for the report, or null when every asset is included
+        String describeFilter() {
+            List<String> parts = new ArrayList<>();
+            if (search != null && !search.isEmpty()) parts.add("search \"" + search + "\"");
+            if (category != null && !category.isEmpty()) parts.add("category " + category);
+            if (status != null && !status.isEmpty()) parts.add("status " + status);
+            return parts.isEmpty() ? null : "Filtered by " + String.join(", ", parts);
+        }
+
+        private static DepreciationEngine.Method parseMethod(String value) {
+            switch (value.toLowerCase()) {
+                case "straight-line": return DepreciationEngine.Method.STRAIGHT_LINE;
+                case "declining-balance": return DepreciationEngine.Method.DECLINING_BALANCE;
+                case "sum-of-years-digits": return DepreciationEngine.Method.SUM_OF_YEARS_DIGITS;
+                default: throw new IllegalArgumentException("Unknown depreciation method: " + value);
+            }
+        }
+
+        private static LocalDate parseDate(String value) {
+            try {
+                return LocalDate.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Not a date in YYYY-MM-DD format: " + value);
+            }
+        }
+
+        private static int parsePort(String value) {
+            try {
+                int port = Integer.parseInt(value);
+                if (port >= 0 && port <= 65535) {
+                    return port;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Not a port number: " + value);
+        }
+
+        // Same range as the report dialog
+        private static int parseYears(String value) {
+            try {
+                int years = Integer.parseInt(value);
+                if (years >= 0 && years <= 30) {
+                    return years;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Years must be a number from 0 to 30: " + value);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Rows of a report for ReportViewer. Values stay in whatever form the report holds them
+// (columns of primitives, rows from a query) and are only turned into text when the table
+// paints a cell or a row is written to a file, so no report is ever built as one big string.
+// Sorting reorders a view-to-source index instead of the rows themselves.
+abstract class ReportTableModel extends AbstractTableModel {
+
+    // How a column is shown and saved; money is a Double of dollars, percent a Double of percent
+    enum Format { TEXT, INTEGER, MONEY, PERCENT, DATE }
+
+    private final String[] columnNames;
+    private final Format[] formats;
+    private final int[] widths; // Characters per column in the text layout
+    private volatile int[] order; // View row -> source row, null while in source order
+    private int sortColumn = -1;
+    private boolean ascending;
+    private List<String> notes = Collections.emptyList();
+    private List<String> footer = Collections.emptyList();
+    private volatile boolean complete = true;
+
+    ReportTableModel(String[] columnNames, Format[] formats, int[] widths) {
+        this.columnNames = columnNames;
+        this.formats = formats;
+        this.widths = widths;
+    }
+
+    protected abstract int getSourceRowCount();
+
+    protected abstract Object getSourceValue(int sourceRow, int column);
+
+    // Compares two source rows on one column, nulls first. Override to compare primitive
+    // columns without boxing.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected int compareRows(int column, int a, int b) {
+        Comparable x = (Comparable) getSourceValue(a, column);
+        Comparable y = (Comparable) getSourceValue(b, column);
+        if (x == null || y == null) {
+            return x == null ? (y == null ? 0 : -1) : 1;
+        }
+        return x.compareTo(y);
+    }
+
+    // Lines shown above and below the table, and written around the rows when saved as text
+    public List<String> getNotes() { return notes; }
+    public List<String> getFooter() { return footer; }
+
+    public void setNotes(String... lines) {
+        notes = Arrays.asList(lines);
+    }
+
+    public void setFooter(List<String> lines) {
+        footer = lines;
+        fireTableDataChanged();
+    }
+
+    // False while rows are still streaming in
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+        fireTableDataChanged();
+    }
+
+    public Format getFormat(int column) {
+        return formats[column];
+    }
+
+    // Sorts on the column, ascending first and descending when sorted on it already
+    public void sortBy(int column) {
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        int rows = getSourceRowCount();
+        Integer[] sorted = new Integer[rows];
+        for (int row = 0; row < rows; row++) {
+            sorted[row] = row;
+        }
+        boolean up = ascending;
+        Arrays.sort(sorted, (a, b) -> up ? compareRows(column, a, b) : compareRows(column, b, a));
+        // Replaced, never changed in place, so a save in progress keeps the order it started with
+        int[] next = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            next[row] = sorted[row];
+        }
+        order = next;
+        fireTableDataChanged();
+    }
+
+    // Tells the table that source rows [from, to) were added. While sorted they are shown at the
+    // end until the next sort.
+    protected void sourceRowsAppended(int from, int to) {
+        if (order != null) {
+            int[] next = Arrays.copyOf(order, to);
+            for (int row = from; row < to; row++) {
+                next[row] = row;
+            }
+            order = next;
+        }
+        fireTableRowsInserted(from, to - 1);
+    }
+
+    @Override
+    public int getRowCount() {
+        return getSourceRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    // The name with an arrow on the sorted column; the viewer refreshes the header after a sort
+    @Override
+    public String getColumnName(int column) {
+        if (column != sortColumn) {
+            return columnNames[column];
+        }
+        return columnNames[column] + (ascending ? " \u25B2" : " \u25BC");
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (formats[column]) {
+            case INTEGER: return Integer.class;
+            case MONEY:
+            case PERCENT: return Double.class;
+            case DATE: return LocalDate.class;
+            default: return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int[] view = order;
+        return getSourceValue(view != null ? view[row] : row, column);
+    }
+
+    // The value as the table shows it
+    public String format(Object value, int column) {
+        if (value == null) {
+            return "";
+        }
+        switch (formats[column]) {
+            case MONEY: return String.format("$%,.2f", (Double) value);
+            case PERCENT: return String.format("%.1f%%", (Double) value);
+            default: return value.toString();
+        }
+    }
+
+    // Writes the report as fixed-width text, one row at a time in the current order
+    public void writeText(Writer out) throws IOException {
+        int[] view = order;
+        int rows = getSourceRowCount();
+        for (String line : notes) {
+            out.write(line);
+            out.write('\n');
+        }
+        if (!notes.isEmpty()) {
+            out.write('\n');
+        }
+        StringBuilder line = new StringBuilder();
+        for (int column = 0; column < columnNames.length; column++) {
+            appendCell(line, columnNames[column], column);
+        }
+        int ruleLength = line.length();
+        out.write(line.append('\n').toString());
+        line.setLength(0);
+        for (int i = 0; i < ruleLength; i++) {
+            line.append('-');
+        }
+        out.write(line.append('\n').toString());
+        for (int row = 0; row < rows; row++) {
+            int source = view != null ? view[row] : row;
+            line.setLength(0);
+            for (int column = 0; column < columnNames.length; column++) {
+                appendCell(line, format(getSourceValue(source, column), column), column);
+            }
+            out.write(line.append('\n').toString());
+        }
+        if (!footer.isEmpty()) {
+            out.write('\n');
+        }
+        for (String footerLine : footer) {
+            out.write(footerLine);
+            out.write('\n');
+        }
+    }
+
+    // Writes the rows as CSV in the current order, with plain numbers so they can be re-read
+    public void writeCsv(CsvWriter csv) throws IOException {
+        int[] view = order;
+        int rows = getSourceRowCount();
+        for (String name : columnNames) {
+            csv.writeField(name);
+        }
+        csv.endRecord();
+        for (int row = 0; row < rows; row++) {
+            int source = view != null ? view[row] : row;
+            for (int column = 0; column < columnNames.length; column++) {
+                Object value = getSourceValue(source, column);
+                if (value == null) {
+                    csv.writeField(null);
+                } else if (formats[column] == Format.MONEY) {
+                    csv.writeField(String.format("%.2f", (Double) value));
+                } else if (formats[column] == Format.PERCENT) {
+                    csv.writeField(String.format("%.1f", (Double) value));
+                } else {
+                    csv.writeField(value.toString());
+                }
+            }
+            csv.endRecord();
+        }
+    }
+
+    // Text is left-aligned and shortened with "..." to fit, everything else right-aligned
+    private void appendCell(StringBuilder line, String text, int column) {
+        int width = widths[column];
+        if (column > 0) {
+            line.append(' ');
+        }
+        if (formats[column] == Format.TEXT) {
+            if (text.length() > width) {
+                line.append(text, 0, width - 3).append("...");
+                return;
+            }
+            line.append(text);
+            for (int i = text.length(); i < width; i++) line.append(' ');
+        } else {
+            for (int i = text.length(); i < width; i++) line.append(' ');
+            line.append(text);
+        }
+    }
+
+    // A report whose rows are arrays of values, appended as they arrive
+    static class Rows extends ReportTableModel {
+        private final List<Object[]> rows = new ArrayList<>();
+
+        Rows(String[] columnNames, Format[] formats, int[] widths) {
+            super(columnNames, formats, widths);
+        }
+
+        // Call on the EDT while the model is shown, e.g. as the sink of QueryContext.publish()
+        public void append(List<Object[]> chunk) {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            int from = rows.size();
+            rows.addAll(chunk);
+            sourceRowsAppended(from, rows.size());
+        }
+
+        @Override
+        protected int getSourceRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        protected Object getSourceValue(int sourceRow, int column) {
+            return rows.get(sourceRow)[column];
+        }
+    }
+}
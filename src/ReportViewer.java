@@ -0,0 +1,166 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableColumnModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Non-modal window showing a ReportTableModel in a table. The table only paints the rows in
+// view, so a report of any size opens at once; rows streaming into the model appear as they
+// arrive. Clicking a column header sorts on it. Save As writes the report row by row to a text
+// file, or to CSV when the file name ends in ".csv", on a background thread.
+class ReportViewer extends JDialog {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReportTableModel model;
+    private final JTable table;
+    private final JLabel rowCountLabel = new JLabel();
+    private final JTextArea footerArea = new JTextArea();
+    private final JButton saveButton = new JButton("Save As...");
+    private boolean saving;
+
+    ReportViewer(Frame owner, String title, ReportTableModel model) {
+        super(owner, title, false);
+        this.model = model;
+        this.table = new JTable(model);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        initializeViewer();
+    }
+
+    private void initializeViewer() {
+        setLayout(new BorderLayout(5, 5));
+
+        if (!model.getNotes().isEmpty()) {
+            JLabel notes = new JLabel(String.join("  |  ", model.getNotes()));
+            notes.setBorder(BorderFactory.createEmptyBorder(5, 5, 0, 5));
+            add(notes, BorderLayout.NORTH);
+        }
+
+        // Cells are formatted as they are painted
+        DefaultTableCellRenderer renderer = new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                int modelColumn = table.convertColumnIndexToModel(column);
+                super.getTableCellRendererComponent(table, model.format(value, modelColumn),
+                        isSelected, hasFocus, row, column);
+                setHorizontalAlignment(model.getFormat(modelColumn) == ReportTableModel.Format.TEXT ? LEFT : RIGHT);
+                return this;
+            }
+        };
+        table.setDefaultRenderer(Object.class, renderer);
+        table.setDefaultRenderer(Integer.class, renderer);
+        table.setDefaultRenderer(Double.class, renderer);
+        table.setFillsViewportHeight(true);
+
+        JTableHeader header = table.getTableHeader();
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    sortBy(table.convertColumnIndexToModel(column));
+                }
+            }
+        });
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        footerArea.setEditable(false);
+        footerArea.setOpaque(false);
+        footerArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JButton closeButton = new JButton("Close");
+        saveButton.addActionListener(e -> saveReport());
+        closeButton.addActionListener(e -> dispose());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(saveButton);
+        buttons.add(closeButton);
+
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
+        statusPanel.add(rowCountLabel, BorderLayout.WEST);
+        statusPanel.add(buttons, BorderLayout.EAST);
+
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(footerArea, BorderLayout.CENTER);
+        south.add(statusPanel, BorderLayout.SOUTH);
+        add(south, BorderLayout.SOUTH);
+
+        model.addTableModelListener(e -> updateStatus());
+        updateStatus();
+
+        setSize(900, 550);
+        setLocationRelativeTo(getOwner());
+    }
+
+    private void sortBy(int column) {
+        if (!model.isComplete()) {
+            return; // Rows still arriving would land out of order
+        }
+        model.sortBy(column);
+        TableColumnModel columns = table.getColumnModel();
+        for (int i = 0; i < columns.getColumnCount(); i++) {
+            columns.getColumn(i).setHeaderValue(model.getColumnName(columns.getColumn(i).getModelIndex()));
+        }
+        table.getTableHeader().repaint();
+    }
+
+    private void updateStatus() {
+        rowCountLabel.setText(model.isComplete() ? model.getRowCount() + " rows"
+                : "Loading... " + model.getRowCount() + " rows so far");
+        footerArea.setText(String.join("\n", model.getFooter()));
+        saveButton.setEnabled(model.isComplete() && !saving);
+    }
+
+    private void saveReport() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Report (name it .csv for CSV)");
+        fileChooser.setSelectedFile(new java.io.File(getTitle().toLowerCase().replace(' ', '_') + ".txt"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = fileChooser.getSelectedFile().toPath();
+        boolean csv = file.getFileName().toString().toLowerCase().endsWith(".csv");
+
+        saving = true;
+        updateStatus();
+        Thread.ofVirtual().name("report-writer").start(() -> {
+            IOException failure = null;
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file),
+                    StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                if (csv) {
+                    model.writeCsv(new CsvWriter(out));
+                } else {
+                    model.writeText(out);
+                }
+            } catch (IOException e) {
+                failure = e;
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // Nothing more to clean up
+                }
+            }
+
+            IOException finalFailure = failure;
+            SwingUtilities.invokeLater(() -> {
+                saving = false;
+                updateStatus();
+                if (finalFailure != null) {
+                    JOptionPane.showMessageDialog(this, "Error saving report: " + finalFailure.getMessage(),
+                            "Save Error", JOptionPane.ERROR_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Saved " + model.getRowCount() + " rows to " + file.getFileName());
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,386 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Brings the database up to the schema this version of the application expects. Migrations are
+// numbered; the ones applied are recorded in schema_version and startup applies whatever is
+// missing, in order, so an empty database gets the whole schema and an old one only the rest.
+// MySQL commits DDL as it goes, so a migration cannot be rolled back when it fails halfway:
+// instead every step looks in information_schema and skips what is already there, and running
+// an interrupted migration again finishes it. A named lock keeps two clients that start at the
+// same time from migrating together.
+final class SchemaMigrator {
+    static final String LOCK_NAME = "fixed_assets_registry.schema";
+    static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // In order; never renumber or change one that has shipped, add a new one instead
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Asset and lookup tables", SchemaMigrator::baseTables),
+            new Migration(2, "Change tracking", SchemaMigrator::changeTracking),
+            new Migration(3, "Lookup foreign keys and filter indexes", SchemaMigrator::lookupForeignKeys),
+            new Migration(4, "Filter indexes in id order", SchemaMigrator::idOrderIndexes));
+
+    static final int LATEST_VERSION = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+    // Lookup columns of fixed_assets: the old name column, its lookup table and the name column there
+    private static final String[][] LOOKUPS = {
+            {"category", "asset_categories", "category_name"},
+            {"location", "asset_locations", "location_name"},
+            {"status", "asset_status", "status_name"}};
+
+    // The indexes as migration 3 shipped them: the category filter, with or without status, and
+    // the category summary; the status filter and summary. Both end in cost, so the summaries read
+    // only the index.
+    private static final String[][] LOOKUP_INDEXES = {
+            {"idx_fixed_assets_category_status", "category_id, status_id, cost"},
+            {"idx_fixed_assets_status", "status_id, cost"},
+            {"idx_fixed_assets_location", "location_id"}};
+
+    // The indexes since migration 4, named after the queries they serve (see SqlStatements). Each
+    // single-column filter index hands its filter the rows in id order through the implicit id
+    // suffix, as the id scan and the pages want them, with no sort. With category and status both
+    // filtered, the pages walk the primary key, and the id scan takes the matching ids from the
+    // category cost index alone and sorts only those. The summaries total cost per category and
+    // status, or per status, from the cost indexes without reading the rows.
+    private static final String[][] INDEXES = {
+            {"idx_fixed_assets_category", "category_id"},
+            {"idx_fixed_assets_status", "status_id"},
+            {"idx_fixed_assets_category_cost", "category_id, status_id, cost"},
+            {"idx_fixed_assets_status_cost", "status_id, cost"},
+            {"idx_fixed_assets_location", "location_id"}};
+
+    // Replaced by migration 4 with idx_fixed_assets_category: status (and cost) come before the
+    // implicit id in it, so a filter on category alone read its rows out of id order
+    private static final String[] DROPPED_INDEXES = {"idx_fixed_assets_category_status"};
+
+    private SchemaMigrator() {
+    }
+
+    // Applies the missing migrations and returns how many there were; cheap when there are none
+    static int migrate(Connection connection) throws SQLException {
+        int current = currentVersion(connection);
+        checkSupported(current);
+        if (current == LATEST_VERSION) {
+            return 0;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Another client has been migrating the database schema for over "
+                            + LOCK_TIMEOUT_SECONDS + " seconds; try again once it has finished");
+                }
+            }
+        }
+        try {
+            execute(connection, "CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(255) NOT NULL, " +
+                    "applied_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))");
+            int version = currentVersion(connection); // Another client may have got here first
+            checkSupported(version);
+            int applied = 0;
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= version) {
+                    continue;
+                }
+                System.out.println("Migrating the database schema to version " + migration.version + ": "
+                        + migration.description + "...");
+                migration.step.apply(connection);
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                    stmt.setInt(1, migration.version);
+                    stmt.setString(2, migration.description);
+                    stmt.executeUpdate();
+                }
+                applied++;
+            }
+            return applied;
+        } finally {
+            try (PreparedStatement stmt = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                stmt.setString(1, LOCK_NAME);
+                stmt.executeQuery().close();
+            }
+        }
+    }
+
+    // 0 when nothing has been recorded yet
+    static int currentVersion(Connection connection) throws SQLException {
+        if (!tableExists(connection, "schema_version")) {
+            return 0;
+        }
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // For read-only clients, which must not change the schema: fails unless the database is at
+    // exactly the version this application's SQL was written for
+    static void checkCurrent(Connection connection) throws SQLException {
+        int version = currentVersion(connection);
+        checkSupported(version);
+        if (version < LATEST_VERSION) {
+            throw new SQLException("The database schema is at version " + version + ", older than this application"
+                    + " needs (" + LATEST_VERSION + "); run \"java RegistryBatch migrate\" or start the application first");
+        }
+    }
+
+    // A newer application migrated past what this one's SQL was written for
+    private static void checkSupported(int version) throws SQLException {
+        if (version > LATEST_VERSION) {
+            throw new SQLException("The database schema is at version " + version
+                    + ", newer than this application supports (" + LATEST_VERSION + "); upgrade the application");
+        }
+    }
+
+    // The tables as the registry first shipped them, with the default lookup values
+    private static void baseTables(Connection connection) throws SQLException {
+        boolean newCategories = createTable(connection, "asset_categories",
+                "id INT AUTO_INCREMENT PRIMARY KEY, category_name VARCHAR(100) UNIQUE NOT NULL");
+        boolean newLocations = createTable(connection, "asset_locations",
+                "id INT AUTO_INCREMENT PRIMARY KEY, location_name VARCHAR(100) UNIQUE NOT NULL");
+        boolean newStatuses = createTable(connection, "asset_status",
+                "id INT AUTO_INCREMENT PRIMARY KEY, status_name VARCHAR(50) UNIQUE NOT NULL");
+        if (newCategories) {
+            execute(connection, "INSERT INTO asset_categories (category_name) VALUES " +
+                    "('Computer Equipment'), ('Office Furniture'), ('Vehicles'), " +
+                    "('Machinery'), ('Software'), ('Building & Infrastructure')");
+        }
+        if (newLocations) {
+            execute(connection, "INSERT INTO asset_locations (location_name) VALUES " +
+                    "('Main Office'), ('Warehouse'), ('Branch Office A'), ('Branch Office B'), ('Remote Location')");
+        }
+        if (newStatuses) {
+            execute(connection, "INSERT INTO asset_status (status_name) VALUES " +
+                    "('Active'), ('Inactive'), ('Under Maintenance'), ('Disposed'), ('Lost/Stolen')");
+        }
+        createTable(connection, "fixed_assets",
+                "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "name VARCHAR(255) NOT NULL, " +
+                "category VARCHAR(100) NOT NULL, " +
+                "description TEXT, " +
+                "cost DECIMAL(12,2) NOT NULL, " +
+                "purchase_date DATE NOT NULL, " +
+                "location VARCHAR(100) NOT NULL, " +
+                "status VARCHAR(50) NOT NULL, " +
+                "serial_number VARCHAR(100), " +
+                "supplier VARCHAR(255), " +
+                "warranty_expiry DATE, " +
+                "depreciation_rate DECIMAL(5,2) DEFAULT 0.0, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP");
+    }
+
+    // Millisecond updated_at with an index, and tombstones for deleted assets, so Refresh only
+    // fetches what changed since the last sync
+    private static void changeTracking(Connection connection) throws SQLException {
+        String updatedAt = "updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)";
+        List<String> changes = new ArrayList<>();
+        if (!columnExists(connection, "fixed_assets", "updated_at")) {
+            changes.add("ADD COLUMN " + updatedAt);
+        } else if (!hasMillisecondPrecision(connection, "fixed_assets", "updated_at")) {
+            changes.add("MODIFY " + updatedAt);
+        }
+        if (!indexExists(connection, "fixed_assets", "idx_fixed_assets_updated_at")) {
+            changes.add("ADD INDEX idx_fixed_assets_updated_at (updated_at)");
+        }
+        alter(connection, changes);
+
+        createTable(connection, "asset_tombstones",
+                "asset_id INT PRIMARY KEY, " +
+                "deleted_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                "INDEX idx_asset_tombstones_deleted_at (deleted_at)");
+        if (!exists(connection, "SELECT 1 FROM information_schema.TRIGGERS " +
+                "WHERE TRIGGER_SCHEMA = DATABASE() AND TRIGGER_NAME = ?", "fixed_assets_after_delete")) {
+            execute(connection, "CREATE TRIGGER fixed_assets_after_delete AFTER DELETE ON fixed_assets " +
+                    "FOR EACH ROW REPLACE INTO asset_tombstones (asset_id, deleted_at) VALUES (OLD.id, CURRENT_TIMESTAMP(3))");
+        }
+    }
+
+    // Category, location and status become ids with foreign keys into the lookup tables, and the
+    // filters and reports get indexes matching their shapes. Names missing from a lookup table
+    // are added to it first, so no asset loses its value. updated_at is kept as it was: the
+    // assets themselves did not change, so clients need not fetch them all again.
+    private static void lookupForeignKeys(Connection connection) throws SQLException {
+        for (String[] lookup : LOOKUPS) {
+            if (columnExists(connection, "fixed_assets", lookup[0])) {
+                execute(connection, "INSERT IGNORE INTO " + lookup[1] + " (" + lookup[2] + ") " +
+                        "SELECT DISTINCT " + lookup[0] + " FROM fixed_assets");
+            }
+        }
+        List<String> changes = new ArrayList<>();
+        for (String[] lookup : LOOKUPS) {
+            if (!columnExists(connection, "fixed_assets", lookup[0] + "_id")) {
+                changes.add("ADD COLUMN " + lookup[0] + "_id INT NULL AFTER " + lookup[0]);
+            }
+        }
+        alter(connection, changes);
+
+        for (String[] lookup : LOOKUPS) {
+            if (columnExists(connection, "fixed_assets", lookup[0])) {
+                execute(connection, "UPDATE fixed_assets a JOIN " + lookup[1] + " x ON x." + lookup[2] + " = a." + lookup[0] +
+                        " SET a." + lookup[0] + "_id = x.id, a.updated_at = a.updated_at WHERE a." + lookup[0] + "_id IS NULL");
+            }
+        }
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM fixed_assets " +
+                     "WHERE category_id IS NULL OR location_id IS NULL OR status_id IS NULL")) {
+            rs.next();
+            if (rs.getInt(1) > 0) {
+                throw new SQLException(rs.getInt(1) + " assets have a category, location or status that could "
+                        + "not be added to its lookup table (too long?); fix them and start again");
+            }
+        }
+
+        changes = new ArrayList<>();
+        for (String[] lookup : LOOKUPS) {
+            if (isNullable(connection, "fixed_assets", lookup[0] + "_id")) {
+                changes.add("MODIFY " + lookup[0] + "_id INT NOT NULL");
+            }
+        }
+        for (String[] index : LOOKUP_INDEXES) {
+            if (!indexExists(connection, "fixed_assets", index[0])) {
+                changes.add("ADD INDEX " + index[0] + " (" + index[1] + ")");
+            }
+        }
+        for (String[] lookup : LOOKUPS) {
+            if (columnExists(connection, "fixed_assets", lookup[0])) {
+                changes.add("DROP COLUMN " + lookup[0]);
+            }
+        }
+        alter(connection, changes);
+
+        // Last, so they can use the indexes above instead of creating their own
+        changes = new ArrayList<>();
+        for (String[] lookup : LOOKUPS) {
+            String name = "fk_fixed_assets_" + lookup[0];
+            if (!exists(connection, "SELECT 1 FROM information_schema.TABLE_CONSTRAINTS " +
+                    "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'fixed_assets' " +
+                    "AND CONSTRAINT_TYPE = 'FOREIGN KEY' AND CONSTRAINT_NAME = ?", name)) {
+                changes.add("ADD CONSTRAINT " + name + " FOREIGN KEY (" + lookup[0] + "_id) REFERENCES " +
+                        lookup[1] + " (id)");
+            }
+        }
+        alter(connection, changes);
+    }
+
+    // Brings the filter and summary indexes to INDEXES: adds the missing ones, rebuilds those
+    // whose columns differ and drops the replaced ones, in one ALTER TABLE. The foreign keys keep
+    // an index starting with their column throughout.
+    private static void idOrderIndexes(Connection connection) throws SQLException {
+        List<String> changes = new ArrayList<>();
+        for (String[] index : INDEXES) {
+            String columns = indexColumns(connection, "fixed_assets", index[0]);
+            if (columns == null) {
+                changes.add("ADD INDEX " + index[0] + " (" + index[1] + ")");
+            } else if (!columns.equals(index[1])) {
+                changes.add("DROP INDEX " + index[0]);
+                changes.add("ADD INDEX " + index[0] + " (" + index[1] + ")");
+            }
+        }
+        for (String index : DROPPED_INDEXES) {
+            if (indexExists(connection, "fixed_assets", index)) {
+                changes.add("DROP INDEX " + index);
+            }
+        }
+        alter(connection, changes);
+    }
+
+    // True when the table was created
+    private static boolean createTable(Connection connection, String table, String definition) throws SQLException {
+        if (tableExists(connection, table)) {
+            return false;
+        }
+        execute(connection, "CREATE TABLE " + table + " (" + definition + ")");
+        return true;
+    }
+
+    // One ALTER TABLE for all the changes, so the table is rebuilt at most once
+    private static void alter(Connection connection, List<String> changes) throws SQLException {
+        if (!changes.isEmpty()) {
+            execute(connection, "ALTER TABLE fixed_assets " + String.join(", ", changes));
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.TABLES " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", table);
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?", table, column);
+    }
+
+    private static boolean isNullable(Connection connection, String table, String column) throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ? AND IS_NULLABLE = 'YES'",
+                table, column);
+    }
+
+    private static boolean hasMillisecondPrecision(Connection connection, String table, String column)
+            throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ? AND DATETIME_PRECISION >= 3",
+                table, column);
+    }
+
+    private static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?", table, index);
+    }
+
+    // The index's columns in order, as "a, b"; null if there is no such index
+    private static String indexColumns(Connection connection, String table, String index) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT GROUP_CONCAT(COLUMN_NAME " +
+                "ORDER BY SEQ_IN_INDEX SEPARATOR ', ') FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?")) {
+            stmt.setString(1, table);
+            stmt.setString(2, index);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private static boolean exists(Connection connection, String sql, String... params) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+import java.util.Collections;
+import java.util.List;
+
+// Every SQL statement the application runs, in one place. Keeping the text identical between
+// call sites matters: the statement cache is keyed by SQL text, so two spellings of the same
+// query would be parsed and cached twice.
+final class SqlStatements {
+
+    private SqlStatements() {
+    }
+
+    // Lookup tables
+    static final String SELECT_CATEGORY_NAMES =
+            "SELECT category_name FROM asset_categories ORDER BY category_name";
+    static final String SELECT_LOCATION_NAMES =
+            "SELECT location_name FROM asset_locations ORDER BY location_name";
+    static final String SELECT_STATUS_NAMES =
+            "SELECT status_name FROM asset_status ORDER BY status_name";
+
+    // Asset columns with the lookup names in place of their ids (see SchemaMigrator), labelled
+    // as the columns were before, so AssetRowMapper and the export read them by the same names.
+    // The tables are aliased: a for fixed_assets, c, l and s for the lookups.
+    static final String ASSET_COLUMNS =
+            "a.id, a.name, c.category_name AS category, a.description, a.cost, a.purchase_date, " +
+            "l.location_name AS location, s.status_name AS status, a.serial_number, a.supplier, " +
+            "a.warranty_expiry, a.depreciation_rate";
+    static final String ASSET_TABLES =
+            " FROM fixed_assets a JOIN asset_categories c ON c.id = a.category_id " +
+            "JOIN asset_locations l ON l.id = a.location_id JOIN asset_status s ON s.id = a.status_id";
+
+    // Lookup ids by name, for writes and filters; an unknown name gives NULL, which the NOT NULL
+    // columns reject and which matches no asset
+    static final String CATEGORY_ID = "(SELECT id FROM asset_categories WHERE category_name = ?)";
+    static final String LOCATION_ID = "(SELECT id FROM asset_locations WHERE location_name = ?)";
+    static final String STATUS_ID = "(SELECT id FROM asset_status WHERE status_name = ?)";
+    // NOT IN rather than != so a database without a Disposed status still matches every asset
+    static final String NOT_DISPOSED = "a.status_id NOT IN (SELECT id FROM asset_status WHERE status_name = 'Disposed')";
+
+    // Full table, for the in-memory store
+    static final String SELECT_ALL_ASSETS = "SELECT " + ASSET_COLUMNS + ASSET_TABLES + " ORDER BY a.id";
+
+    // Single asset CRUD; writes take the lookup names, in the same parameter order as before
+    static final String SELECT_ASSET_BY_ID = "SELECT " + ASSET_COLUMNS + ASSET_TABLES + " WHERE a.id = ?";
+
+    static final String INSERT_ASSET =
+            "INSERT INTO fixed_assets (name, category_id, description, cost, purchase_date, " +
+            "location_id, status_id, serial_number, supplier, warranty_expiry, depreciation_rate) " +
+            "VALUES (?, " + CATEGORY_ID + ", ?, ?, ?, " + LOCATION_ID + ", " + STATUS_ID + ", ?, ?, ?, ?)";
+
+    static final String UPDATE_ASSET =
+            "UPDATE fixed_assets SET name=?, category_id=" + CATEGORY_ID + ", description=?, cost=?, " +
+            "purchase_date=?, location_id=" + LOCATION_ID + ", status_id=" + STATUS_ID + ", serial_number=?, " +
+            "supplier=?, warranty_expiry=?, depreciation_rate=? WHERE id=?";
+
+    static final String DELETE_ASSET = "DELETE FROM fixed_assets WHERE id = ?";
+
+    // Change tracking; updated_at and asset_tombstones come from SchemaMigrator's change tracking
+    static final String SELECT_SERVER_TIME = "SELECT CURRENT_TIMESTAMP(3)";
+    // The server clock and when the oldest transaction still open that has written rows from a
+    // session on this schema started (NULL when none is). Idle transactions and those of other
+    // schemas are left out. Reading INNODB_TRX needs the PROCESS privilege.
+    static final String SELECT_SERVER_TIME_AND_OLDEST_TRANSACTION =
+            "SELECT CURRENT_TIMESTAMP(3), (SELECT MIN(t.trx_started) FROM information_schema.INNODB_TRX t" +
+            " JOIN information_schema.PROCESSLIST p ON p.ID = t.trx_mysql_thread_id" +
+            " WHERE p.DB = DATABASE() AND t.trx_rows_modified > 0)";
+    static final String ASSETS_CHANGED_SINCE =
+            "SELECT " + ASSET_COLUMNS + ASSET_TABLES + " WHERE a.updated_at >= ? ORDER BY a.id";
+    static final String ASSETS_DELETED_SINCE =
+            "SELECT asset_id FROM asset_tombstones WHERE deleted_at >= ?";
+
+    // Reports; the unfiltered texts are constants, filtered ones come from the methods below
+    static final String ASSET_SUMMARY = assetSummary("");
+    static final String ASSET_STATUS_SUMMARY = assetStatusSummary("");
+
+    // Inputs of DepreciationEngine, read when the columnar store is not loaded yet
+    static final String DEPRECIATION_BASIS = depreciationBasis("");
+
+    // Filter fragments appended to the WHERE clause of the filtered asset queries, all of which
+    // alias fixed_assets as a
+    static final String FILTER_SEARCH = " AND (a.name LIKE ? OR a.description LIKE ? OR a.serial_number LIKE ?)";
+    static final String FILTER_CATEGORY = " AND a.category_id = " + CATEGORY_ID;
+    static final String FILTER_STATUS = " AND a.status_id = " + STATUS_ID;
+
+    // The WHERE fragments for a search term (matched anywhere in name, description or serial
+    // number), category and status, each left out when null or empty; their parameters are
+    // added to params in order
+    static String assetFilter(String search, String category, String status, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (search != null && !search.isEmpty()) {
+            where.append(FILTER_SEARCH);
+            String searchPattern = "%" + search + "%";
+            params.add(searchPattern);
+            params.add(searchPattern);
+            params.add(searchPattern);
+        }
+        if (category != null && !category.isEmpty()) {
+            where.append(FILTER_CATEGORY);
+            params.add(category);
+        }
+        if (status != null && !status.isEmpty()) {
+            where.append(FILTER_STATUS);
+            params.add(status);
+        }
+        return where.toString();
+    }
+
+    // Filtered asset queries. The WHERE fragments come from assetFilter(), a fixed set of filter
+    // combinations, so the number of distinct texts stays small.
+
+    // Count, total, average, smallest and largest cost per category, disposed assets left out.
+    // Grouped by id, so idx_fixed_assets_category_cost answers it without reading the rows.
+    static String assetSummary(String whereClause) {
+        return "SELECT c.category_name AS category, COUNT(*) as count, SUM(a.cost) as total_value, " +
+               "AVG(a.cost) as avg_value, MIN(a.cost) as min_value, MAX(a.cost) as max_value " +
+               "FROM fixed_assets a JOIN asset_categories c ON c.id = a.category_id WHERE " + NOT_DISPOSED +
+               whereClause + " GROUP BY a.category_id, c.category_name ORDER BY total_value DESC";
+    }
+
+    // The same per status, from idx_fixed_assets_status_cost
+    static String assetStatusSummary(String whereClause) {
+        return "SELECT s.status_name AS status, COUNT(*) as count, SUM(a.cost) as total_value, " +
+               "AVG(a.cost) as avg_value, MIN(a.cost) as min_value, MAX(a.cost) as max_value " +
+               "FROM fixed_assets a JOIN asset_status s ON s.id = a.status_id WHERE 1=1" +
+               whereClause + " GROUP BY a.status_id, s.status_name ORDER BY total_value DESC";
+    }
+
+    // Depreciating assets that are not disposed
+    static String depreciationBasis(String whereClause) {
+        return "SELECT a.id, a.name, c.category_name AS category, a.cost, a.purchase_date, a.depreciation_rate " +
+               "FROM fixed_assets a JOIN asset_categories c ON c.id = a.category_id " +
+               "WHERE " + NOT_DISPOSED + " AND a.depreciation_rate > 0" + whereClause + " ORDER BY a.id";
+    }
+
+    // Count and total cost of the matching assets, for the status bar; only the cost indexes
+    // are read
+    static String assetTotals(String whereClause) {
+        return "SELECT COUNT(*), COALESCE(SUM(a.cost), 0) FROM fixed_assets a WHERE 1=1" + whereClause;
+    }
+
+    // Ids of the matching assets after the given id (first parameter), for the rest of the
+    // table's id list once its first page is shown. No lookup is joined. A category or status
+    // filter reads its single-column index, which is in id order, so nothing is sorted; with
+    // both, the ids come from the category cost index alone and only they are sorted.
+    static String assetIdScan(String whereClause) {
+        return "SELECT a.id FROM fixed_assets a WHERE a.id > ?" + whereClause + " ORDER BY a.id";
+    }
+
+    // ORDER BY expression of each column of the asset table, by model index. None is ever NULL,
+    // so keyset comparisons hold; a missing warranty sorts first, as NULL would.
+    static final String[] ASSET_SORT_KEYS = {"a.id", "a.name", "c.category_name", "COALESCE(a.description, '')",
+            "a.cost", "a.purchase_date", "l.location_name", "s.status_name", "COALESCE(a.serial_number, '')",
+            "COALESCE(a.supplier, '')", "COALESCE(a.warranty_expiry, DATE '0001-01-01')"};
+
+    // Pages of the matching assets ordered by a sort key and then by id, each row with its key
+    // as sort_key. The first page has no keyset; later ones continue after the last row seen,
+    // given as its key, the key again and its id before the filter's parameters. The page size
+    // is the last parameter. STRAIGHT_JOIN keeps fixed_assets first in the join, so it is read in
+    // key order where an index allows and stops at the LIMIT; otherwise the optimizer starts from
+    // a lookup table and sorts the whole join for one page.
+    static String sortedAssetFirstPage(String whereClause, String sortKey, boolean descending) {
+        return "SELECT STRAIGHT_JOIN " + ASSET_COLUMNS + ", " + sortKey + " AS sort_key" + ASSET_TABLES + " WHERE 1=1" +
+               whereClause + orderBy(sortKey, descending) + " LIMIT ?";
+    }
+
+    static String sortedAssetPage(String whereClause, String sortKey, boolean descending) {
+        return "SELECT STRAIGHT_JOIN " + ASSET_COLUMNS + ", " + sortKey + " AS sort_key" + ASSET_TABLES +
+               after(sortKey, descending) + whereClause + orderBy(sortKey, descending) + " LIMIT ?";
+    }
+
+    // Only the ids and keys of the rows after the last one seen, to skip ahead to a page further
+    // down without reading the rows in between
+    static String sortedAssetIds(String whereClause, String sortKey, boolean descending) {
+        return "SELECT STRAIGHT_JOIN a.id, " + sortKey + " AS sort_key" + ASSET_TABLES + after(sortKey, descending) +
+               whereClause + orderBy(sortKey, descending) + " LIMIT ?";
+    }
+
+    private static String after(String sortKey, boolean descending) {
+        String after = descending ? " < ?" : " > ?";
+        return " WHERE (" + sortKey + after + " OR (" + sortKey + " = ? AND a.id" + after + "))";
+    }
+
+    private static String orderBy(String sortKey, boolean descending) {
+        String direction = descending ? " DESC" : "";
+        return " ORDER BY " + sortKey + direction + (sortKey.equals("a.id") ? "" : ", a.id" + direction);
+    }
+
+    // Matching assets within an id range, for one page of the id list
+    static String assetRange(String whereClause) {
+        return "SELECT " + ASSET_COLUMNS + ASSET_TABLES + " WHERE a.id BETWEEN ? AND ?" + whereClause +
+               " ORDER BY a.id";
+    }
+
+    // The assets with the given ids, one placeholder per id, for rows of a sorted page that are
+    // not fetched by keyset. Callers round the count up to a few sizes, so that only a few texts
+    // reach the statement cache.
+    static String assetsByIds(int count) {
+        return "SELECT " + ASSET_COLUMNS + ASSET_TABLES + " WHERE a.id IN (" +
+               String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+
+    // Every matching asset, for export
+    static String assetExport(String whereClause) {
+        return "SELECT " + ASSET_COLUMNS + ASSET_TABLES + " WHERE 1=1" + whereClause + " ORDER BY a.id";
+    }
+}
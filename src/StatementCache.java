@@ -0,0 +1,224 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// LRU cache of prepared statements for one physical connection, keyed by SQL text. Closing a
+// statement handed out by the cache only clears its parameters, puts its row limit, timeout and
+// fetch size back to the defaults and returns it, so the next prepare of the same SQL reuses the
+// server-side statement instead of parsing it again.
+// With QueryMetrics, executions slower than its threshold are reported with their SQL and the
+// parameters bound at the time (the execute call only; rows streamed afterwards are not timed).
+class StatementCache {
+
+    // Counters shared by every cache in a pool
+    static class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        public long getHits() { return hits.get(); }
+        public long getMisses() { return misses.get(); }
+        public long getEvictions() { return evictions.get(); }
+
+        public double getHitRatio() {
+            long total = hits.get() + misses.get();
+            return total == 0 ? 0.0 : (double) hits.get() / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d evictions=%d hitRatio=%.1f%%",
+                    getHits(), getMisses(), getEvictions(), getHitRatio() * 100);
+        }
+    }
+
+    // A cached statement, whether it is currently handed out and whether it is still in the cache
+    private static class Entry {
+        final String sql;
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean cached = true;
+
+        Entry(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+    }
+
+    private final Connection physical;
+    private final Stats stats;
+    private final QueryMetrics metrics;
+    private final Map<String, Entry> entries;
+
+    StatementCache(Connection physical, int maxStatements, Stats stats) {
+        this(physical, maxStatements, stats, null);
+    }
+
+    StatementCache(Connection physical, int maxStatements, Stats stats, QueryMetrics metrics) {
+        this.physical = physical;
+        this.stats = stats;
+        this.metrics = metrics;
+        this.entries = new LinkedHashMap<>(maxStatements, 0.75f, true) {
+            // Evicts the least recently used statements not handed out, skipping those that are,
+            // so one held statement cannot keep the cache over its size
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                Iterator<Entry> candidates = values().iterator();
+                while (size() > maxStatements && candidates.hasNext()) {
+                    Entry candidate = candidates.next();
+                    if (!candidate.inUse) {
+                        candidates.remove();
+                        stats.evictions.incrementAndGet();
+                        candidate.cached = false;
+                        closeQuietly(candidate.statement);
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    // Returns a cached statement for the SQL, preparing it on a miss. The caller owns it until
+    // close(). If the cached one is already handed out (same SQL nested on one connection), a
+    // plain uncached statement is returned instead.
+    public synchronized PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys)
+            throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "keys:" + sql : sql;
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse && entry.statement.isClosed()) {
+            entries.remove(key);
+            entry.cached = false;
+            entry = null;
+        }
+        if (entry == null) {
+            stats.misses.incrementAndGet();
+            entry = new Entry(sql, physical.prepareStatement(sql, autoGeneratedKeys));
+            entries.put(key, entry);
+        } else if (entry.inUse) {
+            stats.misses.incrementAndGet();
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        } else {
+            stats.hits.incrementAndGet();
+        }
+        entry.inUse = true;
+        return wrap(owner, entry);
+    }
+
+    private synchronized void giveBack(Entry entry) {
+        entry.inUse = false;
+        if (!entry.cached) {
+            closeQuietly(entry.statement); // Evicted while it was handed out
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private PreparedStatement wrap(Connection owner, Entry entry) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned;
+            private final List<Object> params = new ArrayList<>(); // Bound so far, for the slow-query log
+            private int batchSize;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            try {
+                                // The next user expects a fresh statement, not e.g. the export's streaming
+                                // fetch size
+                                entry.statement.clearParameters();
+                                entry.statement.clearBatch();
+                                entry.statement.setMaxRows(0);
+                                entry.statement.setQueryTimeout(0);
+                                entry.statement.setFetchSize(0);
+                            } catch (SQLException e) {
+                                // Statement is broken; the next prepare of this SQL replaces it
+                                closeQuietly(entry.statement);
+                            }
+                            giveBack(entry);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || entry.statement.isClosed();
+                    case "getConnection":
+                        return owner;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Cached[" + entry.statement + "]";
+                }
+                if (returned) {
+                    throw new SQLException("Statement has already been closed");
+                }
+                if (metrics != null) {
+                    return invokeMeasured(method, args);
+                }
+                return invokeStatement(method, args);
+            }
+
+            private Object invokeMeasured(Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.startsWith("execute")) {
+                    long start = System.nanoTime();
+                    try {
+                        return invokeStatement(method, args);
+                    } finally {
+                        long nanos = System.nanoTime() - start;
+                        if (nanos >= metrics.getSlowQueryNanos()) {
+                            metrics.slowQuery(entry.sql, params, batchSize, nanos);
+                        }
+                        if (name.equals("executeBatch")) {
+                            batchSize = 0;
+                        }
+                    }
+                }
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    while (params.size() < index) {
+                        params.add(null);
+                    }
+                    params.set(index - 1, name.equals("setNull") ? null : args[1]);
+                } else if (name.equals("clearParameters")) {
+                    params.clear();
+                } else if (name.equals("addBatch")) {
+                    batchSize++;
+                }
+                return invokeStatement(method, args);
+            }
+
+            private Object invokeStatement(Method method, Object[] args) throws Throwable {
+                try {
+                    return method.invoke(entry.statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Already closed
+        }
+    }
+}